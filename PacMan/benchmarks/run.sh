@@ -0,0 +1,16 @@
+#!/bin/sh
+# Builds the game and the benchmarks, then runs JMH with the GC profiler.
+# Iterations are 1 s as in the benchmarks' annotations, but there are more of
+# them (5 warm-up, 10 measured) and the heap is fixed, so that a diff against
+# the baseline shows regressions rather than noise.
+# Usage: ./run.sh [output file] [extra JMH args...]
+#   ./run.sh baseline/results.txt          refresh the stored baseline
+#   ./run.sh /tmp/new.txt Ghost            compare with: diff baseline/results.txt /tmp/new.txt
+set -e
+cd "$(dirname "$0")"
+out=${1:-baseline/results.txt}
+[ $# -gt 0 ] && shift
+(cd .. && mvn -B -q install -DskipTests)
+mvn -B -q package
+java -jar target/benchmarks.jar -prof gc -wi 5 -i 10 -jvmArgsPrepend "-Xms2g -Xmx2g" \
+    -rf text -rff "$out" "$@"
@@ -0,0 +1,17 @@
+package com.mycompany.pacman;
+
+/** Synthetic maps for the benchmarks: the stock maze tiled n x n times. */
+final class BenchMaps {
+    private BenchMaps() {}
+
+    static GameMap tiled(int n) {
+        GameMap classic = GameMap.classic();
+        Board src = classic.board;
+        int H = src.height(), W = src.width();
+        Board board = new Board(W * n, H * n);
+        for (int y = 0; y < H * n; y++) {
+            for (int x = 0; x < W * n; x++) board.set(x, y, src.get(x % W, y % H));
+        }
+        return n == 1 ? classic : classic.withBoard("classic-" + n + "x" + n, board);
+    }
+}
@@ -0,0 +1,32 @@
+package com.mycompany.pacman;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** One PacmanEnv step (tick plus observation write, auto-resetting) under a random walk. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvBenchmark {
+    PacmanEnv env;
+    GameRandom rand = new GameRandom(42);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        GameMap level = GameMap.classic();
+        ByteBuffer obs = ByteBuffer.allocateDirect(PacmanEnv.observationBytes(level)).order(ByteOrder.nativeOrder());
+        env = new PacmanEnv(level, obs, 0);
+        env.autoReset = true;
+        env.reset(42);
+    }
+
+    @Benchmark
+    public float step() {
+        return env.step(rand.nextInt(8) == 0 ? rand.nextInt(4) : -1);
+    }
+}
@@ -0,0 +1,43 @@
+package com.mycompany.pacman;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GhostBenchmark {
+    // 1 = stock 68x34 map, 2 and 4 = stock map tiled 2x2 / 4x4
+    @Param({"1", "2", "4"})
+    int tiles;
+
+    GameEngine engine;
+    int farX, farY;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        engine = new GameEngine(BenchMaps.tiled(tiles), 42);
+        // Bottom-right corridor of the last tile, far from the pacman spawn
+        farX = engine.map.width() - 3;
+        farY = engine.map.height() - 3;
+    }
+
+    @Benchmark
+    public int[] moveGhosts() {
+        engine.moveGhosts();
+        return engine.ghostX;
+    }
+
+    @Benchmark
+    public int aStar() {
+        return engine.aStar(engine.pacmanX, engine.pacmanY, farX, farY);
+    }
+
+    @Benchmark
+    public int findPath() {
+        return engine.findPath(engine.pacmanX, engine.pacmanY, farX, farY);
+    }
+}
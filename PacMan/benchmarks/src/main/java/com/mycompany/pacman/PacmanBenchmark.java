@@ -0,0 +1,55 @@
+package com.mycompany.pacman;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacmanBenchmark {
+    @Param({"1", "2", "4"})
+    int tiles;
+
+    GameEngine engine;
+    int dir = Constants.RIGHT;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        engine = new GameEngine(BenchMaps.tiled(tiles), 42);
+        // Leave a single pellet away from row 25, so moves never eat it and the game is never won
+        Board map = engine.map;
+        for (int y = 0; y < map.height(); y++) {
+            for (int x = 0; x < map.width(); x++) {
+                if (map.hasPellet(x, y)) map.set(x, y, Constants.EMPTY);
+            }
+        }
+        map.set(map.width() - 3, map.height() - 3, Constants.PELLET);
+    }
+
+    /** One pacman step along row 25, bouncing off walls; every move runs checkPellet + checkWin. */
+    @Benchmark
+    public int movePacman() {
+        int x = engine.pacmanX;
+        engine.movePacman(Constants.DELTAS[dir][0], Constants.DELTAS[dir][1]);
+        if (engine.pacmanX == x) {
+            dir ^= 1;
+            engine.dirX = Constants.DELTAS[dir][0];
+        }
+        return engine.pacmanX;
+    }
+
+    @Benchmark
+    public boolean checkWin() {
+        engine.checkWin();
+        return engine.gameWon;
+    }
+
+    @Benchmark
+    public int checkCollisions() {
+        engine.checkCollisions();
+        return engine.lives;
+    }
+}
@@ -0,0 +1,49 @@
+package com.mycompany.pacman;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Ghost path lookups on generated mazes from 64x64 to 2048x2048: HPA* against the full-grid A*. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathfinderBenchmark {
+    @Param({"64", "512", "2048"})
+    int size;
+
+    @Param({"hpa", "astar"})
+    String kind;
+
+    GameEngine engine;
+    GhostPathfinder pathfinder;
+    int fromX, fromY, toX, toY;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        GameMap level = new MazeGenerator(size, size, 42).generate();
+        engine = new GameEngine(level, 42);
+        pathfinder = GhostPathfinder.forMap(kind, level.board);
+        engine.pathfinder = pathfinder;
+        // From the pacman spawn to an open cell about 40 cells up and to the left
+        fromX = level.pacmanSpawn.x;
+        fromY = level.pacmanSpawn.y;
+        toX = level.board.wrapX(fromX - 40);
+        toY = level.board.wrapY(fromY - 40);
+        while (level.board.isWall(toX, toY)) toX = level.board.wrapX(toX + 1);
+    }
+
+    @Benchmark
+    public int nextDirection() {
+        if (pathfinder == null) return engine.aStar(fromX, fromY, toX, toY);
+        return pathfinder.nextDirection(fromX, fromY, toX, toY);
+    }
+
+    @Benchmark
+    public int[] moveGhosts() {
+        engine.moveGhosts();
+        return engine.ghostX;
+    }
+}
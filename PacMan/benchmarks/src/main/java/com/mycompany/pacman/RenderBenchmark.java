@@ -0,0 +1,47 @@
+package com.mycompany.pacman;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * One in-game frame painted into an offscreen image; runs headless. Boards
+ * bigger than the (headless) screen are viewed through a window-sized camera,
+ * so frame time should stop growing with the board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+    @Param({"1", "2", "4", "16"})
+    int tiles;
+
+    GamePanel panel;
+    BufferedImage image;
+    Graphics2D g2;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        GameEngine engine = new GameEngine(BenchMaps.tiled(tiles), 42);
+        panel = new GamePanel(engine);
+        panel.inMainMenu = false;
+        panel.setSize(panel.getPreferredSize());
+        image = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+        g2 = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        g2.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage renderFrame() {
+        panel.render(g2, 0.5);
+        return image;
+    }
+}
@@ -0,0 +1,49 @@
+package com.mycompany.pacman;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+    @Param({"1", "4"})
+    int tiles;
+
+    GameEngine engine;
+    GameSnapshot snapshot = new GameSnapshot();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        engine = new GameEngine(BenchMaps.tiled(tiles), 42);
+        for (int i = 0; i < 50; i++) engine.tick(-1, 0);
+        engine.snapshot(snapshot);
+    }
+
+    @Benchmark
+    public GameSnapshot snapshot() {
+        return engine.snapshot(snapshot);
+    }
+
+    @Benchmark
+    public int restore() {
+        engine.restore(snapshot);
+        return engine.score;
+    }
+
+    /** Restore plus one tick, which pays for the copy-on-write of the pellet planes when a pellet is eaten. */
+    @Benchmark
+    public int restoreAndTick() {
+        engine.restore(snapshot);
+        engine.tick(-1, 0);
+        return engine.score;
+    }
+
+    @Benchmark
+    public GameEngine fork() {
+        return engine.fork();
+    }
+}
@@ -0,0 +1,54 @@
+package com.mycompany.pacman;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Ticks and collision checks with many ghosts on the stock map tiled 4x4. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwarmBenchmark {
+    @Param({"4", "256", "4096"})
+    int ghosts;
+
+    GameMap map;
+    GameEngine engine;
+    Controller bot;
+    long seed = 1;
+    int desiredDirX, desiredDirY;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        map = BenchMaps.tiled(4).withGhosts(ghosts);
+        newGame();
+        // Let the swarm leave the box before measuring
+        for (int i = 0; i < 200; i++) tick();
+    }
+
+    private void newGame() {
+        engine = new GameEngine(map, seed);
+        bot = new GreedyBot(seed++);
+        desiredDirX = desiredDirY = 0;
+    }
+
+    @Benchmark
+    public int tick() {
+        if (engine.gameOver) newGame();
+        int d = bot.nextDirection(engine);
+        if (d >= 0) {
+            desiredDirX = Constants.DELTAS[d][0];
+            desiredDirY = Constants.DELTAS[d][1];
+        }
+        engine.tick(desiredDirX, desiredDirY);
+        return engine.score;
+    }
+
+    @Benchmark
+    public int checkCollisions() {
+        engine.checkCollisions();
+        return engine.lives;
+    }
+}
@@ -0,0 +1,51 @@
+package com.mycompany.pacman;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** A full game tick (input, movement, ghosts, collisions, animation) driven by the greedy bot. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBenchmark {
+    @Param({"1", "2", "4"})
+    int tiles;
+
+    // Instrumentation attached (GameEngine.metrics) or not, to keep an eye on its cost
+    @Param({"false", "true"})
+    boolean metrics;
+
+    GameMap map;
+    GameEngine engine;
+    Controller bot;
+    long seed = 1;
+    int desiredDirX, desiredDirY;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        map = BenchMaps.tiled(tiles);
+        newGame();
+    }
+
+    private void newGame() {
+        engine = new GameEngine(map, seed);
+        engine.metrics = metrics ? new Metrics() : null;
+        bot = new GreedyBot(seed++);
+        desiredDirX = desiredDirY = 0;
+    }
+
+    @Benchmark
+    public int tick() {
+        if (engine.gameOver) newGame();
+        int d = bot.nextDirection(engine);
+        if (d >= 0) {
+            desiredDirX = Constants.DELTAS[d][0];
+            desiredDirY = Constants.DELTAS[d][1];
+        }
+        engine.tick(desiredDirX, desiredDirY);
+        return engine.score;
+    }
+}
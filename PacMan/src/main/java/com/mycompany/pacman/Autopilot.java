@@ -0,0 +1,73 @@
+package com.mycompany.pacman;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays for the player: an MctsBot with a tree per core, planning on its own
+ * thread while the game loop waits for the next tick. The loop hands over a
+ * snapshot after every tick and, just before the following one, takes
+ * whatever move was planned for it (-1 if planning hasn't finished, in which
+ * case pacman keeps going).
+ */
+public class Autopilot implements Runnable {
+    private final MctsBot bot;
+    private final Thread thread;
+    private final AtomicReference<Request> request = new AtomicReference<>();
+    private GameEngine template;               // loop thread only: fork of the game engine on the current level
+    private long requests;                     // loop thread only
+    private volatile long decision = -1;       // request number << 8 | move
+    private volatile boolean running = true;
+
+    // The number and the level's fork travel with the snapshot, so a plan is always tagged with the
+    // state it was made from and never restores a snapshot into another level's engine
+    private record Request(long number, GameEngine like, GameSnapshot state) {}
+
+    public Autopilot(long budgetNanos) {
+        bot = new MctsBot(GameRandom.mix(System.nanoTime()), Runtime.getRuntime().availableProcessors(),
+                budgetNanos, 0);
+        thread = new Thread(this, "autopilot");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Loop thread, after a tick: start planning the move from the engine's current state. */
+    public void request(GameEngine engine) {
+        if (template == null || template.level != engine.level) template = engine.fork();
+        request.set(new Request(++requests, template, engine.snapshot()));
+        LockSupport.unpark(thread);
+    }
+
+    /** Loop thread, before a tick: the move planned since the last request, or -1. */
+    public int decision() {
+        long d = decision;
+        return d >>> 8 == requests ? (byte) d : -1;
+    }
+
+    public double rolloutsPerSecond() {
+        return bot.rolloutsPerSecond;
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            Request r = request.getAndSet(null);
+            if (r == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                // Moves planned for a tick that has already been played are ignored by decision()
+                decision = r.number() << 8 | (bot.plan(r.like(), r.state()) & 0xFF);
+            } catch (RuntimeException e) {
+                // Skip this tick rather than lose the thread; pacman keeps going and the next request replans
+                System.err.println("Autopilot could not plan tick " + r.number() + ": " + e);
+            }
+        }
+    }
+}
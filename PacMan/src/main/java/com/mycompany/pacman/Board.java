@@ -0,0 +1,286 @@
+package com.mycompany.pacman;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Maze contents as two bit planes, walls and pellets (power pellets
+ * included), with each row padded to whole longs. Power pellets and the
+ * ghost box are a handful of cells per maze, so they are kept as sorted cell
+ * lists instead of planes of their own. That is 2 bits per cell plus the
+ * padding: about 1.2 KB for the stock 68x34 maze against 9.9 KB as int[][],
+ * and close to 16x smaller on mazes whose width is a multiple of 64. Keeps a
+ * running pellet count so the win check doesn't have to scan the board.
+ *
+ * The pellet plane is copy-on-write: once handed to a GameSnapshot it is
+ * shared, and the first change afterwards copies it.
+ */
+public class Board {
+    private final int width;
+    private final int height;
+    private final int stride;          // longs per row
+    private final long[] walls;
+    private long[] pellets;            // pellets and power pellets
+    private boolean pelletsShared;
+    // Cells (y * width + x) in ascending order; replaced on change, never modified, so boards share them.
+    // A power cell only holds a power pellet while its pellet bit is set.
+    private int[] powerCells = new int[0];
+    private int[] boxCells = new int[0];
+    private int pelletsLeft;           // pellets + power pellets
+
+    public Board(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.stride = (width + 63) >>> 6;
+        this.walls = new long[stride * height];
+        this.pellets = new long[stride * height];
+    }
+
+    public Board(int[][] cells) {
+        this(cells[0].length, cells.length);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) set(x, y, cells[y][x]);
+        }
+    }
+
+    public Board(Board other) {
+        this(other.width, other.height);
+        copyFrom(other);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int wrapX(int x) {
+        return x < 0 ? x + width : x >= width ? x - width : x;
+    }
+
+    public int wrapY(int y) {
+        return y < 0 ? y + height : y >= height ? y - height : y;
+    }
+
+    private int word(int x, int y) {
+        return y * stride + (x >>> 6);
+    }
+
+    public boolean isWall(int x, int y) {
+        return (walls[word(x, y)] & (1L << x)) != 0;
+    }
+
+    public boolean hasPellet(int x, int y) {
+        return (pellets[word(x, y)] & (1L << x)) != 0;
+    }
+
+    /** Cell contents as one of the Constants map codes. */
+    public int get(int x, int y) {
+        int w = word(x, y);
+        long bit = 1L << x;
+        if ((walls[w] & bit) != 0) return Constants.WALL;
+        if ((pellets[w] & bit) != 0) {
+            return Arrays.binarySearch(powerCells, y * width + x) >= 0 ? Constants.POWER_PELLET : Constants.PELLET;
+        }
+        return Arrays.binarySearch(boxCells, y * width + x) >= 0 ? Constants.GHOST_BOX : Constants.EMPTY;
+    }
+
+    public void set(int x, int y, int cell) {
+        ownPellets();
+        int w = word(x, y);
+        long bit = 1L << x;
+        int c = y * width + x;
+        if ((pellets[w] & bit) != 0) pelletsLeft--;
+        walls[w] &= ~bit;
+        pellets[w] &= ~bit;
+        powerCells = without(powerCells, c);
+        boxCells = without(boxCells, c);
+        switch (cell) {
+            case Constants.WALL: walls[w] |= bit; break;
+            case Constants.PELLET: pellets[w] |= bit; pelletsLeft++; break;
+            case Constants.POWER_PELLET: pellets[w] |= bit; powerCells = with(powerCells, c); pelletsLeft++; break;
+            case Constants.GHOST_BOX: boxCells = with(boxCells, c); break;
+        }
+    }
+
+    private static int[] with(int[] cells, int c) {
+        int i = Arrays.binarySearch(cells, c);
+        if (i >= 0) return cells;
+        i = -i - 1;
+        int[] grown = new int[cells.length + 1];
+        System.arraycopy(cells, 0, grown, 0, i);
+        grown[i] = c;
+        System.arraycopy(cells, i, grown, i + 1, cells.length - i);
+        return grown;
+    }
+
+    private static int[] without(int[] cells, int c) {
+        int i = Arrays.binarySearch(cells, c);
+        if (i < 0) return cells;
+        int[] shrunk = new int[cells.length - 1];
+        System.arraycopy(cells, 0, shrunk, 0, i);
+        System.arraycopy(cells, i + 1, shrunk, i, shrunk.length - i);
+        return shrunk;
+    }
+
+    /** Removes a pellet or power pellet and returns what was there. */
+    public int eat(int x, int y) {
+        int w = word(x, y);
+        long bit = 1L << x;
+        if ((pellets[w] & bit) == 0) return get(x, y);
+        int cell = get(x, y);
+        ownPellets();
+        pellets[w] &= ~bit;
+        pelletsLeft--;
+        return cell;
+    }
+
+    public int pelletsLeft() {
+        return pelletsLeft;
+    }
+
+    public int walkableCells() {
+        int walkable = 0;
+        for (int y = 0; y < height; y++) {
+            for (int i = 0; i < stride; i++) {
+                int bits = i == stride - 1 && (width & 63) != 0 ? width & 63 : 64;
+                walkable += bits - Long.bitCount(walls[y * stride + i]);
+            }
+        }
+        return walkable;
+    }
+
+    /** Copies every plane of a board with the same dimensions. */
+    public void copyFrom(Board other) {
+        System.arraycopy(other.walls, 0, walls, 0, walls.length);
+        ownPellets();
+        System.arraycopy(other.pellets, 0, pellets, 0, pellets.length);
+        powerCells = other.powerCells;
+        boxCells = other.boxCells;
+        pelletsLeft = other.pelletsLeft;
+    }
+
+    long[] wallPlane() {
+        return walls;
+    }
+
+    /**
+     * Builds a board from one Constants cell code per byte, row-major. Rows are
+     * filled in parallel; each row owns its own words, so no two threads write
+     * the same long.
+     */
+    static Board fromCells(int width, int height, byte[] cells) {
+        Board b = new Board(width, height);
+        int[] rowPellets = new int[height];
+        IntStream.range(0, height).parallel().forEach(y -> {
+            int count = 0;
+            for (int x = 0; x < width; x++) {
+                int w = y * b.stride + (x >>> 6);
+                long bit = 1L << x;
+                switch (cells[y * width + x]) {
+                    case Constants.WALL: b.walls[w] |= bit; break;
+                    case Constants.PELLET, Constants.POWER_PELLET: b.pellets[w] |= bit; count++; break;
+                }
+            }
+            rowPellets[y] = count;
+        });
+        for (int c : rowPellets) b.pelletsLeft += c;
+        // Ordered streams keep the cells ascending
+        b.powerCells = IntStream.range(0, cells.length).parallel()
+                .filter(i -> cells[i] == Constants.POWER_PELLET).toArray();
+        b.boxCells = IntStream.range(0, cells.length).parallel()
+                .filter(i -> cells[i] == Constants.GHOST_BOX).toArray();
+        return b;
+    }
+
+    /** Number of longs written by writePlanes for a board of this size. */
+    static int planeLongs(int width, int height) {
+        return 4 * ((width + 63) >>> 6) * height;
+    }
+
+    /**
+     * Writes walls, pellets, power pellets and ghost box as four bit planes at
+     * {@code offset} with absolute puts, the layout of compiled maps and
+     * PacmanEnv observations; returns the offset after them. Allocates nothing.
+     */
+    int writePlanes(ByteBuffer out, int offset) {
+        offset = putLongs(out, offset, walls);
+        int pelletsAt = offset;
+        offset = putLongs(out, offset, pellets);
+        int powerAt = offset;
+        offset = putZeroes(out, offset, walls.length);
+        int boxAt = offset;
+        offset = putZeroes(out, offset, walls.length);
+        // Move present power pellets from the pellet plane to their own
+        for (int c : powerCells) {
+            int x = c % width, at = word(x, c / width) * 8;
+            long bit = 1L << x;
+            if ((pellets[at / 8] & bit) == 0) continue;
+            out.putLong(pelletsAt + at, out.getLong(pelletsAt + at) & ~bit);
+            out.putLong(powerAt + at, out.getLong(powerAt + at) | bit);
+        }
+        for (int c : boxCells) {
+            int x = c % width, at = boxAt + word(x, c / width) * 8;
+            out.putLong(at, out.getLong(at) | 1L << x);
+        }
+        return offset;
+    }
+
+    private static int putLongs(ByteBuffer out, int offset, long[] plane) {
+        for (long v : plane) {
+            out.putLong(offset, v);
+            offset += 8;
+        }
+        return offset;
+    }
+
+    private static int putZeroes(ByteBuffer out, int offset, int words) {
+        for (int i = 0; i < words; i++, offset += 8) out.putLong(offset, 0);
+        return offset;
+    }
+
+    static Board readPlanes(int width, int height, LongBuffer in) {
+        Board b = new Board(width, height);
+        in.get(b.walls).get(b.pellets);
+        b.powerCells = b.readCells(in, true);
+        b.boxCells = b.readCells(in, false);
+        for (long w : b.pellets) b.pelletsLeft += Long.bitCount(w);
+        return b;
+    }
+
+    // Reads one plane as a cell list, also setting the cells in the pellet plane if asked
+    private int[] readCells(LongBuffer in, boolean pellet) {
+        IntStream.Builder cells = IntStream.builder();
+        for (int w = 0; w < walls.length; w++) {
+            long bits = in.get();
+            if (pellet) pellets[w] |= bits;
+            for (; bits != 0; bits &= bits - 1) {
+                cells.add((w / stride) * width + ((w % stride) << 6) + Long.numberOfTrailingZeros(bits));
+            }
+        }
+        return cells.build().toArray();
+    }
+
+    private void ownPellets() {
+        if (!pelletsShared) return;
+        pellets = pellets.clone();
+        pelletsShared = false;
+    }
+
+    /** Hands out the pellet plane for a snapshot; it becomes read-only for this board. */
+    long[] sharePellets() {
+        pelletsShared = true;
+        return pellets;
+    }
+
+    /** Switches to a (shared) pellet plane taken from a snapshot of a board with the same walls. */
+    void adoptPellets(long[] pellets, int pelletsLeft) {
+        this.pellets = pellets;
+        this.pelletsLeft = pelletsLeft;
+        pelletsShared = true;
+    }
+}
@@ -0,0 +1,193 @@
+package com.mycompany.pacman;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * The static board (maze and pellets) cut into CHUNK x CHUNK tile images,
+ * rendered the first time they come into view and kept in an LRU cache of a
+ * few screens' worth. A frame only touches the chunks under the viewport,
+ * so its cost depends on the window size, not the map size. Evicted chunks
+ * hand their image to the next one rendered, so once the cache is full
+ * scrolling allocates nothing.
+ *
+ * Eaten pellets are painted over in cached chunks and ignored in the rest,
+ * which are rendered from the board as it is when they come back.
+ */
+public class BoardChunks {
+    public static final int CHUNK = 16;
+    private static final Color FLOOR = new Color(10, 10, 30);
+    private static final Color WALL_GLOW = new Color(0, 120, 255, 60);
+    private static final Color WALL = new Color(0, 180, 255);
+    private static final Color BOX = new Color(20, 20, 80, 180);
+    private static final BasicStroke WALL_STROKE = new BasicStroke(2);
+
+    private final SpriteCache sprites;
+    private Board board;
+    private int columns, rows;          // chunks across and down
+    private BufferedImage[] images = new BufferedImage[0];
+    // LRU over cached chunk indices: head is the most recently drawn
+    private int[] prev = new int[0], next = new int[0];
+    private int head = -1, tail = -1, cached;
+    public int capacity = 64;
+
+    public BoardChunks(SpriteCache sprites) {
+        this.sprites = sprites;
+    }
+
+    /** Drops every chunk; the next frame renders the ones it needs from {@code board}. */
+    public void reset(Board board) {
+        this.board = board;
+        int chunks = ((board.width() + CHUNK - 1) / CHUNK) * ((board.height() + CHUNK - 1) / CHUNK);
+        columns = (board.width() + CHUNK - 1) / CHUNK;
+        rows = (board.height() + CHUNK - 1) / CHUNK;
+        if (images.length != chunks) {
+            images = new BufferedImage[chunks];
+            prev = new int[chunks];
+            next = new int[chunks];
+        } else {
+            Arrays.fill(images, null);
+        }
+        head = tail = -1;
+        cached = 0;
+    }
+
+    public int cached() {
+        return cached;
+    }
+
+    /** Draws the chunks overlapping the view rectangle, given in board pixels. */
+    public void draw(Graphics2D g2, int viewX, int viewY, int viewW, int viewH) {
+        int span = CHUNK * Constants.TILE_SIZE;
+        int cx0 = Math.max(0, viewX / span), cy0 = Math.max(0, viewY / span);
+        int cx1 = Math.min(columns - 1, (viewX + viewW - 1) / span);
+        int cy1 = Math.min(rows - 1, (viewY + viewH - 1) / span);
+        // Room for everything on screen plus a border of chunks, so scrolling back is free
+        capacity = Math.max(capacity, 2 * (cx1 - cx0 + 3) * (cy1 - cy0 + 3));
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                g2.drawImage(chunk(g2, cy * columns + cx), cx * span, cy * span, null);
+            }
+        }
+    }
+
+    /** Paints the bare floor back over (x,y) if its chunk is cached. */
+    public void cellCleared(int x, int y) {
+        BufferedImage image = images[(y / CHUNK) * columns + x / CHUNK];
+        if (image == null) return;
+        int S = Constants.TILE_SIZE;
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.translate(-(x / CHUNK) * CHUNK * S, -(y / CHUNK) * CHUNK * S);
+        g.clipRect(x * S, y * S, S, S);
+        drawMaze(g, x - 1, y - 1, x + 1, y + 1);
+        g.dispose();
+    }
+
+    private BufferedImage chunk(Graphics2D screen, int c) {
+        BufferedImage image = images[c];
+        if (image != null) {
+            touch(c);
+            return image;
+        }
+        if (cached >= capacity) {
+            int victim = tail;
+            unlink(victim);
+            image = images[victim];
+            images[victim] = null;
+            cached--;
+        } else {
+            int span = CHUNK * Constants.TILE_SIZE;
+            GraphicsConfiguration gc = screen.getDeviceConfiguration();
+            image = gc != null ? gc.createCompatibleImage(span, span, Transparency.OPAQUE)
+                    : new BufferedImage(span, span, BufferedImage.TYPE_INT_RGB);
+        }
+        render(screen, image, c);
+        images[c] = image;
+        cached++;
+        prev[c] = -1;
+        next[c] = head;
+        if (head >= 0) prev[head] = c;
+        head = c;
+        if (tail < 0) tail = c;
+        return image;
+    }
+
+    private void render(Graphics2D screen, BufferedImage image, int c) {
+        int S = Constants.TILE_SIZE;
+        int x0 = (c % columns) * CHUNK, y0 = (c / columns) * CHUNK;
+        int x1 = Math.min(board.width(), x0 + CHUNK) - 1, y1 = Math.min(board.height(), y0 + CHUNK) - 1;
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setRenderingHints(screen.getRenderingHints());
+        g.translate(-x0 * S, -y0 * S);
+        g.clipRect(x0 * S, y0 * S, (x1 - x0 + 1) * S, (y1 - y0 + 1) * S);
+        // One tile of border so wall glow crosses chunk edges as it does on a single image
+        drawMaze(g, x0 - 1, y0 - 1, x1 + 1, y1 + 1);
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int cell = board.get(x, y);
+                if (cell == Constants.PELLET || cell == Constants.POWER_PELLET) {
+                    sprites.drawPellet(g, x * S, y * S, cell == Constants.POWER_PELLET);
+                }
+            }
+        }
+        g.dispose();
+    }
+
+    // In row order, as later tiles' floor covers earlier tiles' glow
+    private void drawMaze(Graphics2D g2, int x0, int y0, int x1, int y1) {
+        int S = Constants.TILE_SIZE;
+        x0 = Math.max(0, x0);
+        y0 = Math.max(0, y0);
+        x1 = Math.min(board.width() - 1, x1);
+        y1 = Math.min(board.height() - 1, y1);
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int px = x * S, py = y * S;
+                g2.setColor(FLOOR);
+                g2.fillRect(px, py, S, S);
+                switch (board.get(x, y)) {
+                    case Constants.WALL:
+                        g2.setColor(WALL_GLOW);
+                        g2.fillRoundRect(px - 3, py - 3, S + 6, S + 6, 8, 8);
+                        g2.setStroke(WALL_STROKE);
+                        g2.setColor(WALL);
+                        g2.drawRoundRect(px + 1, py + 1, S - 2, S - 2, 6, 6);
+                        break;
+                    case Constants.GHOST_BOX:
+                        g2.setColor(BOX);
+                        g2.fillRect(px, py, S, S);
+                        break;
+                }
+            }
+        }
+    }
+
+    private void touch(int c) {
+        if (c == head) return;
+        unlink(c);
+        prev[c] = -1;
+        next[c] = head;
+        prev[head] = c;
+        head = c;
+        if (tail < 0) tail = c;
+    }
+
+    private void unlink(int c) {
+        if (prev[c] >= 0) next[prev[c]] = next[c];
+        else head = next[c];
+        if (next[c] >= 0) prev[next[c]] = prev[c];
+        else tail = prev[c];
+    }
+}
@@ -0,0 +1,9 @@
+package com.mycompany.pacman;
+
+/** Notified by GameEngine when board cells change, so views can update incrementally. */
+public interface BoardListener {
+    void cellCleared(int x, int y);
+
+    /** Every pellet has been restored from the original map. */
+    void boardReset();
+}
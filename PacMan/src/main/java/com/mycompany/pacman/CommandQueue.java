@@ -0,0 +1,43 @@
+package com.mycompany.pacman;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free queue of int commands for one producer thread (e.g. the
+ * AWT event thread) and one consumer thread (the game loop). Neither side
+ * blocks: offer fails when the queue is full and poll returns EMPTY.
+ */
+public class CommandQueue {
+    public static final int EMPTY = Integer.MIN_VALUE;
+
+    private final int[] buffer;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();   // next slot to read
+    private final AtomicLong tail = new AtomicLong();   // next slot to write
+
+    public CommandQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        buffer = new int[size];
+        mask = size - 1;
+    }
+
+    public boolean offer(int command) {
+        long t = tail.get();
+        if (t - head.get() == buffer.length) return false;
+        buffer[(int) t & mask] = command;
+        tail.lazySet(t + 1);    // publishes the slot write
+        return true;
+    }
+
+    public int poll() {
+        long h = head.get();
+        if (h == tail.get()) return EMPTY;
+        int command = buffer[(int) h & mask];
+        head.lazySet(h + 1);
+        return command;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+}
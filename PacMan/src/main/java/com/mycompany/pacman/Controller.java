@@ -0,0 +1,28 @@
+package com.mycompany.pacman;
+
+/**
+ * Input source for Pac-Man when nobody is at the keyboard. Called once per
+ * tick before the engine moves; returns one of the Constants directions or
+ * -1 to keep the last one.
+ */
+public interface Controller {
+    int nextDirection(GameEngine engine);
+
+    /** Replays a fixed list of directions, one per tick, then holds the last one. */
+    static Controller scripted(int... directions) {
+        return new Controller() {
+            private int i = 0;
+
+            @Override
+            public int nextDirection(GameEngine engine) {
+                return i < directions.length ? directions[i++] : -1;
+            }
+        };
+    }
+
+    /** Turns into a random direction every few ticks. */
+    static Controller random(long seed) {
+        GameRandom rand = new GameRandom(seed);
+        return engine -> rand.nextInt(8) == 0 ? rand.nextInt(4) : -1;
+    }
+}
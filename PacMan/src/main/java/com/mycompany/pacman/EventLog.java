@@ -0,0 +1,62 @@
+package com.mycompany.pacman;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Analytics export: writes game events as CSV lines
+ * ({@code tick,event,x,y,value,score}), flushed after every batch. Runs on a
+ * GameEvents consumer thread, so a slow disk only costs this log events,
+ * never the game a tick.
+ */
+public class EventLog implements GameEventHandler {
+    private final BufferedWriter out;
+    private final StringBuilder line = new StringBuilder(64);
+    private IOException failure;
+    public long written;
+
+    public EventLog(Path file) throws IOException {
+        out = Files.newBufferedWriter(file);
+        out.write("tick,event,x,y,value,score\n");
+    }
+
+    @Override
+    public void onEvent(int type, int gameTick, int x, int y, int value, int score) {
+        if (failure != null) return;
+        line.setLength(0);
+        line.append(gameTick).append(',').append(GameEvents.name(type)).append(',').append(x).append(',')
+                .append(y).append(',').append(value).append(',').append(score).append('\n');
+        try {
+            out.append(line);
+            written++;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void endOfBatch() {
+        if (failure != null) return;
+        try {
+            out.flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (failure == null) fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        failure = e;
+        System.err.println("Event log stopped: " + e);
+    }
+}
@@ -2,78 +2,393 @@ package com.mycompany.pacman;
 
 import java.awt.Point;
 import java.util.*;
+import java.util.stream.IntStream;
 
 public class GameEngine {
+    /** Ghost counts from which moveGhosts decides ghosts in parallel (only with a pathfinder). */
+    public static final int PARALLEL_GHOSTS = Integer.getInteger("pacman.parallelGhosts", 256);
+    /** Ghost plans built per tick at most (-Dpacman.planBudget); ghosts over budget wait their turn. */
+    public static final int PLAN_BUDGET = Integer.getInteger("pacman.planBudget", 256);
+    static final int PLAN_STEPS = 15;   // directions packed two bits each into one int
+    private static final byte NO_LOOKUP = 0, PLAN_NOW = 1, DEFERRED = 2;
+    /** Ticks an eaten ghost waits in the box before heading out again (-Dpacman.releaseDelay). */
+    public static final int RELEASE_DELAY = Integer.getInteger("pacman.releaseDelay", 0);
+    static final int POWER_TICKS = 300, PHASE_TICKS = 100;
+    // Timer kinds; the argument of GHOST_RELEASE is the ghost
+    private static final int POWER_END = 0, PHASE_SWITCH = 1, GHOST_RELEASE = 2;
+
     // Game state (keep all original variable names)
     public int mouthAngle = 0;
     public boolean mouthOpening = true;
-    public int pacmanX = 35;
-    public int pacmanY = 25;
+    public int pacmanX;
+    public int pacmanY;
     public int dirX = 0;
     public int dirY = 0;
     public int lastDirection = Constants.RIGHT;
     public boolean powerMode = false;
-    public int powerTimer = 0;
     public int score = 0;
     public int lives = 3;
     public boolean gameOver = false;
     public boolean gameWon = false;
     public int gameTick = 0;
-    public int[][] map;
-    public int[][] originalMap;
-    public int[][] ghosts = {
-        {35,15,0,0}, {35,16,1,0}, {32,15,2,0}, {32,16,3,0}
-    };
-    public Deque<Point>[] exitPaths;
-    private Random rand = new Random();
-    private final Point[] scatterTargets;
-    private final Point ghostDoor = new Point(33, 13);
+    public Board map;
+    public Board originalMap;
+    public GameMap level;
+    // Ghosts as parallel arrays, one slot per ghost; type picks the colour and scatter corner
+    public int[] ghostX;
+    public int[] ghostY;
+    public int[] ghostType;
+    public int[] ghostDir;
+    public int[][] exitPaths;   // ghost-box exit path per ghost (packed cells), only without a pathfinder
+    public int[] exitLength, exitStep;
+    private BoardListener[] boardListeners = new BoardListener[0];
+    private final GameRandom rand;
+    private long seed;
+    private Point[] scatterTargets;
+    private Point ghostDoor;
+    // Where everyone stood before this tick's moves, so crossings can be caught
+    private int lastPacmanX, lastPacmanY;
+    private int[] lastGhostX, lastGhostY;
+    private final SpatialHash ghostCells = new SpatialHash();
+    private int[] nextGhostX, nextGhostY, nextGhostDir;   // decided moves, applied together
+    // Ghost plans: what they were made for (target cell and phase), the cell the ghost should be
+    // on to use the next step, and the steps left; scheduled by planCursor and planBudget
+    private int[] planKey, planCell, planDirs, planLeft;
+    private byte[] ghostTask;
+    private int planCursor;
+    public int planBudget = PLAN_BUDGET;
+    // Timed events fire from the wheel at the end of the tick they are due on, so ticks
+    // without one cost nothing; timers are rebuilt from the snapshot fields on restore
+    private final TimingWheel timers = new TimingWheel(512);
+    private int powerEnd = -1;       // timer handles, -1 when not scheduled
+    private int[] releaseTimer;      // per ghost: held in the box until it fires
+    private boolean chasing = true;  // phase the ghosts move in next tick
+    public int releaseDelay = RELEASE_DELAY;
+    public GhostPathfinder pathfinder;   // null: full-grid aStar/findPath on every step
+    public Metrics metrics = Metrics.ENABLED ? new Metrics() : null;
+    public GameEvents events;            // null: nothing published; forks never publish
+
+    // Search scratch for aStar/findPath, reused so a tick doesn't allocate
+    private static final int[] FIND_PATH_DX = {1, -1, 0, 0};
+    private static final int[] FIND_PATH_DY = {0, 0, 1, -1};
+    private int[] seen = new int[0], closed = new int[0], parent = new int[0], queue = new int[0];
+    private int stamp;
+    private int[] nodeCell = new int[0], nodeG = new int[0], nodeF = new int[0], nodeParent = new int[0];
+    private int[] heap = new int[0];
+    private int nodeCount, heapSize;
+    private int[] pathCells = new int[16];
 
     public GameEngine() {
-        originalMap = deepCopyMap(Constants.MAP);
-        map = deepCopyMap(originalMap);
-        exitPaths = new ArrayDeque[ghosts.length];
-        for(int i=0; i<ghosts.length; i++) exitPaths[i] = new ArrayDeque<>();
-        
-        this.scatterTargets = new Point[]{
-            new Point(0, 0),
-            new Point(map[0].length-1, 0),
-            new Point(map[0].length-1, map.length-1),
-            new Point(0, map.length-1)
-        };
+        this(System.nanoTime() ^ GameRandom.mix(System.identityHashCode(new Object())));
+    }
+
+    public GameEngine(long seed) {
+        this(GameMap.classic(), seed);
+    }
+
+    public GameEngine(GameMap level, long seed) {
+        this.seed = seed;
+        rand = new GameRandom(seed);
+        useLevel(level);
+        resetPositions(false);
+        startTimers();
+    }
+
+    // Forks share the immutable parts (level, pathfinder) with the source
+    private GameEngine(GameEngine source) {
+        seed = source.seed;
+        rand = new GameRandom(0);
+        level = source.level;
+        originalMap = source.originalMap;
+        map = new Board(originalMap);
+        pathfinder = source.pathfinder;
+        scatterTargets = source.scatterTargets;
+        ghostDoor = source.ghostDoor;
+        planBudget = source.planBudget;
+        releaseDelay = source.releaseDelay;
+        allocateGhosts(source.ghostX.length);
+        restore(source.snapshot());
+    }
+
+    private void useLevel(GameMap level) {
+        this.level = level;
+        originalMap = level.board;
+        map = new Board(originalMap);
+        pathfinder = GhostPathfinder.forMap(originalMap);
+        scatterTargets = level.scatterTargets;
+        ghostDoor = level.ghostDoor;
+        allocateGhosts(level.ghostSpawns.length);
+    }
+
+    private void allocateGhosts(int n) {
+        ghostX = new int[n];
+        ghostY = new int[n];
+        ghostType = new int[n];
+        ghostDir = new int[n];
+        lastGhostX = new int[n];
+        lastGhostY = new int[n];
+        nextGhostX = new int[n];
+        nextGhostY = new int[n];
+        nextGhostDir = new int[n];
+        planKey = new int[n];
+        planCell = new int[n];
+        planDirs = new int[n];
+        planLeft = new int[n];
+        ghostTask = new byte[n];
+        releaseTimer = new int[n];
+        Arrays.fill(releaseTimer, -1);
+        for (int i = 0; i < n; i++) ghostType[i] = i % 4;
+        exitPaths = new int[n][0];
+        exitLength = new int[n];
+        exitStep = new int[n];
+    }
+
+    public int ghostCount() {
+        return ghostX.length;
+    }
+
+    /** Switches to another level and starts a new game on it. Snapshots of the old level no longer apply. */
+    public void reset(GameMap level, long seed) {
+        useLevel(level);
+        reset(seed);
+    }
+
+    /** Starts a new game with a new seed, exactly as if this engine had just been constructed with it. */
+    public void reset(long seed) {
+        this.seed = seed;
+        rand.setState(seed);
+        mouthAngle = 0;
+        mouthOpening = true;
+        lastDirection = Constants.RIGHT;
+        powerMode = false;
+        score = 0;
+        lives = 3;
+        gameOver = false;
+        gameWon = false;
+        gameTick = 0;
+        Arrays.fill(ghostDir, 0);
+        planCursor = 0;
+        resetPositions(true);
+        startTimers();
+    }
+
+    /** Seed of the current game (set by the constructor or the last reset). */
+    public long seed() {
+        return seed;
+    }
+
+    /** An independent engine in exactly this state; the board is shared until either side eats. */
+    public GameEngine fork() {
+        return new GameEngine(this);
     }
 
-    private int[][] deepCopyMap(int[][] source) {
-        int[][] copy = new int[source.length][];
-        for(int i=0; i<source.length; i++) copy[i] = source[i].clone();
-        return copy;
+    public GameSnapshot snapshot() {
+        return snapshot(new GameSnapshot());
+    }
+
+    /** Captures the full state into {@code into}, reusing its arrays when the ghost count matches. */
+    public GameSnapshot snapshot(GameSnapshot into) {
+        int n = ghostX.length;
+        int size = GameSnapshot.HEADER + n * 9;
+        if (into.state.length != size) into.state = new int[size];
+        int[] s = into.state;
+        s[GameSnapshot.MOUTH_ANGLE] = mouthAngle;
+        s[GameSnapshot.MOUTH_OPENING] = mouthOpening ? 1 : 0;
+        s[GameSnapshot.PACMAN_X] = pacmanX;
+        s[GameSnapshot.PACMAN_Y] = pacmanY;
+        s[GameSnapshot.DIR_X] = dirX;
+        s[GameSnapshot.DIR_Y] = dirY;
+        s[GameSnapshot.LAST_DIRECTION] = lastDirection;
+        s[GameSnapshot.POWER_MODE] = powerMode ? 1 : 0;
+        s[GameSnapshot.POWER_TIMER] = powerTicksLeft();
+        s[GameSnapshot.SCORE] = score;
+        s[GameSnapshot.LIVES] = lives;
+        s[GameSnapshot.GAME_OVER] = gameOver ? 1 : 0;
+        s[GameSnapshot.GAME_WON] = gameWon ? 1 : 0;
+        s[GameSnapshot.GAME_TICK] = gameTick;
+        s[GameSnapshot.GHOST_COUNT] = n;
+        s[GameSnapshot.PLAN_CURSOR] = planCursor;
+        for (int i = 0, o = GameSnapshot.HEADER; i < n; i++, o += 4) {
+            s[o] = ghostX[i];
+            s[o + 1] = ghostY[i];
+            s[o + 2] = ghostType[i];
+            s[o + 3] = ghostDir[i];
+        }
+        for (int i = 0, o = GameSnapshot.HEADER + n * 4; i < n; i++, o += 4) {
+            s[o] = planKey[i];
+            s[o + 1] = planCell[i];
+            s[o + 2] = planDirs[i];
+            s[o + 3] = planLeft[i];
+        }
+        for (int i = 0, o = GameSnapshot.HEADER + n * 8; i < n; i++, o++) {
+            s[o] = releaseTimer[i] >= 0 ? timers.due(releaseTimer[i]) - gameTick : 0;
+        }
+        into.rngState = rand.getState();
+        into.pellets = map.sharePellets();
+        into.pelletsLeft = map.pelletsLeft();
+        return into;
+    }
+
+    /**
+     * Puts the engine back into a snapshot taken from an engine on the same map
+     * with the same number of ghosts. Pending ghost-box exit paths are dropped
+     * and recomputed on the next tick.
+     */
+    public void restore(GameSnapshot from) {
+        int[] s = from.state;
+        if (s[GameSnapshot.GHOST_COUNT] != ghostX.length) {
+            throw new IllegalArgumentException("Snapshot has " + s[GameSnapshot.GHOST_COUNT]
+                    + " ghosts, engine has " + ghostX.length);
+        }
+        mouthAngle = s[GameSnapshot.MOUTH_ANGLE];
+        mouthOpening = s[GameSnapshot.MOUTH_OPENING] != 0;
+        pacmanX = s[GameSnapshot.PACMAN_X];
+        pacmanY = s[GameSnapshot.PACMAN_Y];
+        dirX = s[GameSnapshot.DIR_X];
+        dirY = s[GameSnapshot.DIR_Y];
+        lastDirection = s[GameSnapshot.LAST_DIRECTION];
+        powerMode = s[GameSnapshot.POWER_MODE] != 0;
+        score = s[GameSnapshot.SCORE];
+        lives = s[GameSnapshot.LIVES];
+        gameOver = s[GameSnapshot.GAME_OVER] != 0;
+        gameWon = s[GameSnapshot.GAME_WON] != 0;
+        gameTick = s[GameSnapshot.GAME_TICK];
+        for (int i = 0, o = GameSnapshot.HEADER; i < ghostX.length; i++, o += 4) {
+            ghostX[i] = s[o];
+            ghostY[i] = s[o + 1];
+            ghostType[i] = s[o + 2];
+            ghostDir[i] = s[o + 3];
+            exitLength[i] = exitStep[i] = 0;
+        }
+        for (int i = 0, o = GameSnapshot.HEADER + ghostX.length * 4; i < ghostX.length; i++, o += 4) {
+            planKey[i] = s[o];
+            planCell[i] = s[o + 1];
+            planDirs[i] = s[o + 2];
+            planLeft[i] = s[o + 3];
+        }
+        planCursor = s[GameSnapshot.PLAN_CURSOR];
+        startTimers();
+        if (powerMode) {
+            powerEnd = timers.schedule(gameTick + Math.max(1, s[GameSnapshot.POWER_TIMER]), POWER_END, 0);
+        }
+        for (int i = 0, o = GameSnapshot.HEADER + ghostX.length * 8; i < ghostX.length; i++, o++) {
+            if (s[o] > 0) releaseTimer[i] = timers.schedule(gameTick + s[o], GHOST_RELEASE, i);
+        }
+        lastPacmanX = pacmanX;
+        lastPacmanY = pacmanY;
+        System.arraycopy(ghostX, 0, lastGhostX, 0, ghostX.length);
+        System.arraycopy(ghostY, 0, lastGhostY, 0, ghostY.length);
+        indexGhosts();
+        rand.setState(from.rngState);
+        map.adoptPellets(from.pellets, from.pelletsLeft);
+        for (BoardListener l : boardListeners) l.boardReset();
+    }
+
+    public void addBoardListener(BoardListener listener) {
+        boardListeners = Arrays.copyOf(boardListeners, boardListeners.length + 1);
+        boardListeners[boardListeners.length - 1] = listener;
+    }
+
+    public void removeBoardListener(BoardListener listener) {
+        for (int i = 0; i < boardListeners.length; i++) {
+            if (boardListeners[i] != listener) continue;
+            BoardListener[] rest = new BoardListener[boardListeners.length - 1];
+            System.arraycopy(boardListeners, 0, rest, 0, i);
+            System.arraycopy(boardListeners, i + 1, rest, i, rest.length - i);
+            boardListeners = rest;
+            return;
+        }
     }
 
     // All original game logic methods
+    public void tick(int desiredDirX, int desiredDirY) {
+        if (metrics != null) {
+            timedTick(desiredDirX, desiredDirY);
+            return;
+        }
+        movePacman(desiredDirX, desiredDirY);
+        moveGhosts();
+        checkCollisions();
+        updateAnimations();
+        runTimers();
+    }
+
+    private void timedTick(int desiredDirX, int desiredDirY) {
+        long start = System.nanoTime();
+        movePacman(desiredDirX, desiredDirY);
+        long pacman = System.nanoTime();
+        moveGhosts();
+        long ghosts = System.nanoTime();
+        checkCollisions();
+        long collisions = System.nanoTime();
+        updateAnimations();
+        runTimers();
+        metrics.recordTick(gameTick, start, pacman, ghosts, collisions, System.nanoTime());
+    }
+
     public void updateAnimations() {
         if(mouthOpening) mouthAngle += 10;
         else mouthAngle -= 10;
         if(mouthAngle >= 60) mouthOpening = false;
         else if(mouthAngle <= 0) mouthOpening = true;
-        if(powerMode && --powerTimer <= 0) powerMode = false;
+    }
+
+    /** Ticks of power mode left, counting this one's end; 0 when it is off. */
+    public int powerTicksLeft() {
+        return powerEnd >= 0 ? timers.due(powerEnd) - gameTick : 0;
+    }
+
+    /** Whether ghost i is being held in the box after it was eaten. */
+    public boolean ghostHeld(int i) {
+        return releaseTimer[i] >= 0;
+    }
+
+    // Drops all timers and schedules the next phase switch for the current tick
+    private void startTimers() {
+        timers.clear();
+        powerEnd = -1;
+        Arrays.fill(releaseTimer, -1);
+        chasing = ((gameTick + 1) / PHASE_TICKS) % 2 == 0;
+        timers.schedule(((gameTick + 1) / PHASE_TICKS) * PHASE_TICKS + PHASE_TICKS - 1, PHASE_SWITCH, 0);
+    }
+
+    private void runTimers() {
+        for (int t; (t = timers.expire(gameTick)) >= 0; ) {
+            int arg = timers.arg(t);
+            switch (timers.kind(t)) {
+                case POWER_END:
+                    powerMode = false;
+                    powerEnd = -1;
+                    break;
+                case PHASE_SWITCH:
+                    chasing = !chasing;
+                    timers.schedule(gameTick + PHASE_TICKS, PHASE_SWITCH, 0);
+                    break;
+                case GHOST_RELEASE:
+                    releaseTimer[arg] = -1;
+                    break;
+            }
+        }
     }
 
     public void movePacman(int desiredDirX, int desiredDirY) {
+        lastPacmanX = pacmanX;
+        lastPacmanY = pacmanY;
          // Check if the desired direction is possible
-        int desiredNewX = (pacmanX + desiredDirX + map[0].length) % map[0].length;
-        int desiredNewY = (pacmanY + desiredDirY + map.length) % map.length;
+        int desiredNewX = map.wrapX(pacmanX + desiredDirX);
+        int desiredNewY = map.wrapY(pacmanY + desiredDirY);
 
-        if (map[desiredNewY][desiredNewX] != 1) {
+        if (!map.isWall(desiredNewX, desiredNewY)) {
             // Update direction to the desired direction if valid
             dirX = desiredDirX;
             dirY = desiredDirY;
         }
 
         // Proceed with current direction
-        int newX = (pacmanX + dirX + map[0].length) % map[0].length;
-        int newY = (pacmanY + dirY + map.length) % map.length;
+        int newX = map.wrapX(pacmanX + dirX);
+        int newY = map.wrapY(pacmanY + dirY);
 
-        if (map[newY][newX] != 1) {
+        if (!map.isWall(newX, newY)) {
             pacmanX = newX;
             pacmanY = newY;
             lastDirection = getDirectionFromDelta(dirX, dirY);
@@ -83,155 +398,343 @@ public class GameEngine {
 
     public void moveGhosts() {
         gameTick++;
-        boolean chasePhase = (gameTick / 100) % 2 == 0;
-
-        for (int i = 0; i < ghosts.length; i++) {
-            int[] ghost = ghosts[i];
-            int gx = ghost[0], gy = ghost[1];
-            int currDir = ghost[3];
+        boolean chasePhase = chasing;
+        long tickSeed = rand.nextLong();
+        int n = ghostX.length;
+        System.arraycopy(ghostX, 0, lastGhostX, 0, n);
+        System.arraycopy(ghostY, 0, lastGhostY, 0, n);
+
+        scheduleGhosts(chasePhase, tickSeed);
+
+        // Decide every move against the positions at the start of the tick, then apply them all
+        int lookups = 0;
+        if (pathfinder != null && n >= PARALLEL_GHOSTS) {
+            lookups = IntStream.range(0, n).parallel().map(i -> decideGhost(i, chasePhase, tickSeed)).sum();
+        } else {
+            for (int i = 0; i < n; i++) lookups += decideGhost(i, chasePhase, tickSeed);
+        }
+        if (metrics != null) metrics.routeLookups += lookups;
+        System.arraycopy(nextGhostX, 0, ghostX, 0, n);
+        System.arraycopy(nextGhostY, 0, ghostY, 0, n);
+        System.arraycopy(nextGhostDir, 0, ghostDir, 0, n);
+    }
 
-            if (map[gy][gx] == Constants.GHOST_BOX) {
-                moveGhostOutOfBox(ghost, i);
-                continue;
+    /**
+     * Picks the ghosts that may look up a new plan this tick: those chasing a
+     * target their plan wasn't made for (or off or out of plan), and those
+     * leaving the ghost box, at most planBudget of them. Starting each tick
+     * where the last one ran out means deferred ghosts go first next time, so
+     * lookups per tick stay bounded however many ghosts there are and no ghost
+     * waits more than ghostCount / planBudget ticks.
+     */
+    private void scheduleGhosts(boolean chasePhase, long tickSeed) {
+        int n = ghostX.length, granted = 0, deferred = 0, nextCursor = planCursor;
+        for (int k = 0, i = planCursor; k < n; k++, i = i + 1 < n ? i + 1 : 0) {
+            boolean needs;
+            if (releaseTimer[i] >= 0) {
+                needs = false;
+            } else if (map.get(ghostX[i], ghostY[i]) == Constants.GHOST_BOX) {
+                needs = pathfinder != null || exitStep[i] == exitLength[i];
+            } else {
+                needs = chases(tickSeed, i) && !(planLeft[i] > 0 && planKey[i] == planKey(i, chasePhase)
+                        && planCell[i] == ghostY[i] * map.width() + ghostX[i]);
             }
-
-            List<Integer> moves = new ArrayList<>();
-            for (int d = 0; d < 4; d++) {
-                if (d == opposite(currDir)) continue;
-                int nx = (gx + Constants.DELTAS[d][0] + map[0].length) % map[0].length;
-                int ny = (gy + Constants.DELTAS[d][1] + map.length) % map.length;
-                if (map[ny][nx] != Constants.WALL) moves.add(d);
+            if (!needs) {
+                ghostTask[i] = NO_LOOKUP;
+            } else if (granted < planBudget) {
+                ghostTask[i] = PLAN_NOW;
+                granted++;
+            } else {
+                if (deferred++ == 0) nextCursor = i;
+                ghostTask[i] = DEFERRED;
             }
+        }
+        planCursor = nextCursor;
+        if (metrics != null) {
+            metrics.plansBuilt += granted;
+            metrics.plansDeferred += deferred;
+            if (deferred > 0) metrics.planOverruns++;
+        }
+    }
+
+    // Ghost i follows its plan this tick rather than wandering (70% of the time)
+    private static boolean chases(long tickSeed, int i) {
+        return GameRandom.toDouble(GameRandom.nth(tickSeed, 2L * i + 1)) < 0.7;
+    }
 
-            Point target = chasePhase ? 
-                new Point(pacmanX, pacmanY) : 
-                scatterTargets[ghost[2]];
+    private int planKey(int i, boolean chasePhase) {
+        if (chasePhase) return (pacmanY * map.width() + pacmanX) << 1 | 1;
+        Point scatter = scatterTargets[ghostType[i] % scatterTargets.length];
+        return (scatter.y * map.width() + scatter.x) << 1;
+    }
 
-            if (!moves.isEmpty() && Math.random() < 0.7) {
-                Point[] path = aStar(gx, gy, target.x, target.y);
-                if (path.length > 1) {
-                    Point nextStep = path[1];
-                    currDir = getDirectionFromDelta(nextStep.x - gx, nextStep.y - gy);
-                }
-            } else if (!moves.isEmpty()) {
-                currDir = moves.get(rand.nextInt(moves.size()));
-            }
+    /**
+     * Works out ghost i's next cell and direction into the next* arrays without
+     * touching shared state, so ghosts can be decided on any thread in any order.
+     * Its random draws come from tickSeed and its index. Returns the number of
+     * pathfinder lookups made.
+     */
+    private int decideGhost(int i, boolean chasePhase, long tickSeed) {
+        int gx = ghostX[i], gy = ghostY[i];
+        int currDir = ghostDir[i];
+        nextGhostX[i] = gx;
+        nextGhostY[i] = gy;
+        nextGhostDir[i] = currDir;
+        if (releaseTimer[i] >= 0) return 0;
+
+        if (map.get(gx, gy) == Constants.GHOST_BOX) {
+            return ghostTask[i] == DEFERRED ? 0 : moveGhostOutOfBox(i);   // deferred: wait in the box
+        }
 
-            int nx = (gx + Constants.DELTAS[currDir][0] + map[0].length) % map[0].length;
-            int ny = (gy + Constants.DELTAS[currDir][1] + map.length) % map.length;
+        int moves = 0, moveCount = 0;   // up to four directions, two bits each
+        for (int d = 0; d < 4; d++) {
+            if (d == opposite(currDir)) continue;
+            int nx = map.wrapX(gx + Constants.DELTAS[d][0]);
+            int ny = map.wrapY(gy + Constants.DELTAS[d][1]);
+            if (!map.isWall(nx, ny)) moves |= d << (2 * moveCount++);
+        }
+        if (moveCount == 0) {   // dead end: turn around
+            moves = opposite(currDir);
+            moveCount = 1;
+        }
 
-            if (map[ny][nx] != Constants.WALL) {
-                ghost[0] = nx;
-                ghost[1] = ny;
-                ghost[3] = currDir;
+        Point scatter = scatterTargets[ghostType[i] % scatterTargets.length];
+        int tx = chasePhase ? pacmanX : scatter.x;
+        int ty = chasePhase ? pacmanY : scatter.y;
+
+        int lookups = 0;
+        if (chases(tickSeed, i)) {
+            if (ghostTask[i] == PLAN_NOW) lookups = buildPlan(i, gx, gy, tx, ty, planKey(i, chasePhase));
+            // Follow the plan, even a stale one while deferred; without one keep going
+            if (planLeft[i] > 0 && planCell[i] == gy * map.width() + gx) {
+                currDir = planDirs[i] & 3;
+                planDirs[i] >>>= 2;
+                planLeft[i]--;
+                planCell[i] = map.wrapY(gy + Constants.DELTAS[currDir][1]) * map.width()
+                        + map.wrapX(gx + Constants.DELTAS[currDir][0]);
             }
+        } else {
+            currDir = (moves >>> (2 * GameRandom.toInt(GameRandom.nth(tickSeed, 2L * i + 2), moveCount))) & 3;
         }
+
+        int nx = map.wrapX(gx + Constants.DELTAS[currDir][0]);
+        int ny = map.wrapY(gy + Constants.DELTAS[currDir][1]);
+
+        if (!map.isWall(nx, ny)) {
+            nextGhostX[i] = nx;
+            nextGhostY[i] = ny;
+            nextGhostDir[i] = currDir;
+        }
+        return lookups;
     }
 
 
     public void checkCollisions() {
-        for (int[] ghost : ghosts) {
-            if (ghost[0] == pacmanX && ghost[1] == pacmanY) {
-                if (powerMode) {
-                    // Eat ghost
-                    ghost[0] = 32;
-                    ghost[1] = 15;
-                    score += 200;
-                } else {
-                    if (--lives <= 0) {
-                        gameOver = true;
-                        gameWon = false; // Explicit loss
-                    }
-                    resetPositions(false); // Don't reset pellets
+        indexGhosts();
+        boolean moved = collideAt(pacmanX, pacmanY, false);
+        // Pacman and a ghost that swapped cells this tick passed through each other
+        if (!moved && (pacmanX != lastPacmanX || pacmanY != lastPacmanY)) {
+            moved = collideAt(lastPacmanX, lastPacmanY, true);
+        }
+        if (moved) indexGhosts();
+    }
+
+    private void indexGhosts() {
+        ghostCells.rebuild(ghostX, ghostY, ghostX.length, map.width());
+    }
+
+    /** Whether a ghost is on (x,y), as of the end of the last tick. */
+    public boolean ghostAt(int x, int y) {
+        for (int i = ghostCells.first(x, y); i >= 0; i = ghostCells.next(i)) {
+            if (ghostX[i] == x && ghostY[i] == y) return true;
+        }
+        return false;
+    }
+
+    // Handles the ghosts on (x,y); true if any ghost was sent home or pacman lost a life
+    private boolean collideAt(int x, int y, boolean swapped) {
+        boolean moved = false;
+        for (int i = ghostCells.first(x, y); i >= 0; i = ghostCells.next(i)) {
+            if (ghostX[i] != x || ghostY[i] != y) continue;
+            if (swapped && (lastGhostX[i] != pacmanX || lastGhostY[i] != pacmanY)) continue;
+            if (powerMode) {
+                // Eat ghost
+                ghostX[i] = lastGhostX[i] = level.ghostHome.x;
+                ghostY[i] = lastGhostY[i] = level.ghostHome.y;
+                if (releaseTimer[i] >= 0) timers.cancel(releaseTimer[i]);
+                releaseTimer[i] = releaseDelay > 0 ? timers.schedule(gameTick + releaseDelay, GHOST_RELEASE, i) : -1;
+                score += 200;
+                if (events != null) events.publish(GameEvents.GHOST_EATEN, gameTick, x, y, 200, score);
+                moved = true;
+            } else {
+                if (--lives <= 0) {
+                    gameOver = true;
+                    gameWon = false; // Explicit loss
                 }
+                if (events != null) {
+                    events.publish(GameEvents.LIFE_LOST, gameTick, x, y, lives, score);
+                    if (gameOver) events.publish(GameEvents.GAME_LOST, gameTick, x, y, 0, score);
+                }
+                resetPositions(false); // Don't reset pellets
+                return true;
             }
         }
+        return moved;
     }
 
     public void checkPellet() {
-        int cell = map[pacmanY][pacmanX];
-        if (cell == 0) {
+        int cell = map.eat(pacmanX, pacmanY);
+        if (cell == Constants.PELLET) {
             score += 10;
-            map[pacmanY][pacmanX] = 4;
-        } else if (cell == 2) {
+        } else if (cell == Constants.POWER_PELLET) {
             score += 50;
             powerMode = true;
-            powerTimer = 300;
-            map[pacmanY][pacmanX] = 4;
+            if (powerEnd >= 0) timers.cancel(powerEnd);
+            powerEnd = timers.schedule(gameTick + POWER_TICKS, POWER_END, 0);
+        }
+        if (cell == Constants.PELLET || cell == Constants.POWER_PELLET) {
+            for (BoardListener l : boardListeners) l.cellCleared(pacmanX, pacmanY);
+            if (events != null) {
+                boolean power = cell == Constants.POWER_PELLET;
+                events.publish(power ? GameEvents.POWER_PELLET : GameEvents.PELLET, gameTick,
+                        pacmanX, pacmanY, power ? 50 : 10, score);
+            }
         }
         checkWin();
     }
 
     public void checkWin() {
-        for (int[] row : map) {
-            for (int c : row) {
-                if (c == 0 || c == 2) return;
-            }
-        }
+        if (map.pelletsLeft() > 0) return;
         gameWon = true;
         gameOver = true;
+        if (events != null) events.publish(GameEvents.GAME_WON, gameTick, pacmanX, pacmanY, 0, score);
     }
 
     public void resetPositions(boolean fullReset) {
         if (fullReset) {
             // Restore pellets from original map
-            for (int y = 0; y < map.length; y++) {
-                System.arraycopy(originalMap[y], 0, map[y], 0, map[y].length);
-            }
+            map.copyFrom(originalMap);
+            for (BoardListener l : boardListeners) l.boardReset();
         }
 
         // Reset positions (same for both cases)
-        pacmanX = 35;
-        pacmanY = 25;
+        pacmanX = level.pacmanSpawn.x;
+        pacmanY = level.pacmanSpawn.y;
         dirX = 0;
         dirY = 0;
 
-        ghosts[0][0] = 35; ghosts[0][1] = 15;
-        ghosts[1][0] = 35; ghosts[1][1] = 16;
-        ghosts[2][0] = 32; ghosts[2][1] = 15;
-        ghosts[3][0] = 32; ghosts[3][1] = 16;
-
-        for (int i = 0; i < ghosts.length; i++) {
-            exitPaths[i].clear();
+        lastPacmanX = pacmanX;
+        lastPacmanY = pacmanY;
+        for (int i = 0; i < ghostX.length; i++) {
+            ghostX[i] = lastGhostX[i] = level.ghostSpawns[i].x;
+            ghostY[i] = lastGhostY[i] = level.ghostSpawns[i].y;
+            exitLength[i] = exitStep[i] = 0;
+            planLeft[i] = 0;
+            if (releaseTimer[i] >= 0) {
+                timers.cancel(releaseTimer[i]);
+                releaseTimer[i] = -1;
+            }
         }
+        indexGhosts();
     }
 
-    // Keep all helper methods
-    private Point[] aStar(int sx, int sy, int tx, int ty) {
-        int H = map.length, W = map[0].length;
-        class Node implements Comparable<Node> {
-            int x, y, g, f;
-            Node parent;
-            Node(int x,int y,int g,int f,Node p){this.x=x;this.y=y;this.g=g;this.f=f;this.parent=p;}
-            public int compareTo(Node o){return this.f - o.f;}
-        }
-        PriorityQueue<Node> open = new PriorityQueue<>();
-        boolean[][] closed = new boolean[H][W];
-        open.add(new Node(sx, sy, 0, Math.abs(sx-tx)+Math.abs(sy-ty), null));
+    // Keep all helper methods (aStar/findPath are only used when pathfinder is null).
+    // Both work on packed y * width + x cells in scratch buffers kept between calls.
+
+    private void ensureScratch(int cells) {
+        if (seen.length == cells) return;
+        seen = new int[cells];
+        closed = new int[cells];
+        parent = new int[cells];
+        queue = new int[cells];
+        stamp = 0;
+    }
 
-        while (!open.isEmpty()) {
-            Node cur = open.poll();
-            if (cur.x==tx && cur.y==ty) {
+    /**
+     * Shortest path from (sx,sy) to (tx,ty), written to pathCells from the
+     * start cell to the target; returns the number of cells, 0 when there is
+     * no path. Ties break exactly as the original PriorityQueue version did.
+     */
+    int aStar(int sx, int sy, int tx, int ty) {
+        int H = map.height(), W = map.width();
+        ensureScratch(W * H);
+        int mark = ++stamp;
+        nodeCount = 0;
+        heapSize = 0;
+        push(newNode(sy * W + sx, 0, Math.abs(sx-tx)+Math.abs(sy-ty), -1));
+        if (metrics != null) metrics.aStarCalls++;
+
+        while (heapSize > 0) {
+            int cur = poll();
+            int cell = nodeCell[cur];
+            int cx = cell % W, cy = cell / W;
+            if (metrics != null) metrics.aStarNodes++;
+            if (cx==tx && cy==ty) {
                 // reconstruct
-                List<Point> path = new ArrayList<>();
-                for (Node n=cur; n!=null; n=n.parent)
-                    path.add(0, new Point(n.x,n.y));
-                return path.toArray(new Point[0]);
+                int length = 0;
+                for (int n=cur; n>=0; n=nodeParent[n]) length++;
+                if (pathCells.length < length) pathCells = new int[Math.max(length, pathCells.length * 2)];
+                for (int n=cur, k=length-1; n>=0; n=nodeParent[n], k--) pathCells[k] = nodeCell[n];
+                return length;
             }
-            if (closed[cur.y][cur.x]) continue;
-            closed[cur.y][cur.x] = true;
+            if (closed[cell] == mark) continue;
+            closed[cell] = mark;
 
             for (int d=0; d<4; d++) {
-                int nx = (cur.x + Constants.DELTAS[d][0] + W)%W;
-                int ny = (cur.y + Constants.DELTAS[d][1] + H)%H;
-                if (!closed[ny][nx] && map[ny][nx] != 1) {
-                    int g2 = cur.g + 1;
+                int nx = (cx + Constants.DELTAS[d][0] + W)%W;
+                int ny = (cy + Constants.DELTAS[d][1] + H)%H;
+                if (closed[ny * W + nx] != mark && !map.isWall(nx, ny)) {
+                    int g2 = nodeG[cur] + 1;
                     int h2 = Math.abs(nx-tx) + Math.abs(ny-ty);
-                    open.add(new Node(nx, ny, g2, g2+h2, cur));
+                    push(newNode(ny * W + nx, g2, g2+h2, cur));
                 }
             }
         }
-        return new Point[0];
+        return 0;
+    }
+
+    private int newNode(int cell, int g, int f, int parentNode) {
+        if (nodeCount == nodeCell.length) {
+            int size = Math.max(64, nodeCount * 2);
+            nodeCell = Arrays.copyOf(nodeCell, size);
+            nodeG = Arrays.copyOf(nodeG, size);
+            nodeF = Arrays.copyOf(nodeF, size);
+            nodeParent = Arrays.copyOf(nodeParent, size);
+            heap = Arrays.copyOf(heap, size);
+        }
+        nodeCell[nodeCount] = cell;
+        nodeG[nodeCount] = g;
+        nodeF[nodeCount] = f;
+        nodeParent[nodeCount] = parentNode;
+        return nodeCount++;
+    }
+
+    // Binary heap of nodes by f, sifting like java.util.PriorityQueue so equal f pop in the same order
+    private void push(int node) {
+        int k = heapSize++;
+        while (k > 0) {
+            int up = (k - 1) >>> 1;
+            if (nodeF[node] >= nodeF[heap[up]]) break;
+            heap[k] = heap[up];
+            k = up;
+        }
+        heap[k] = node;
+    }
+
+    private int poll() {
+        int top = heap[0];
+        int last = heap[--heapSize];
+        int k = 0, half = heapSize >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            int right = child + 1;
+            if (right < heapSize && nodeF[heap[child]] > nodeF[heap[right]]) child = right;
+            if (nodeF[last] <= nodeF[heap[child]]) break;
+            heap[k] = heap[child];
+            k = child;
+        }
+        if (heapSize > 0) heap[k] = last;
+        return top;
     }
 
     private int opposite(int dir) {
@@ -252,49 +755,108 @@ public class GameEngine {
         return lastDirection;
     }
 
-    private void moveGhostOutOfBox(int[] ghost, int idx) {
-        Deque<Point> path = exitPaths[idx];
-        if (path.isEmpty()) {
-            path.addAll(findPath(ghost[0], ghost[1], ghostDoor.x, ghostDoor.y));
-        }
-        if (!path.isEmpty()) {
-            Point next = path.removeFirst();
-            ghost[0] = next.x;
-            ghost[1] = next.y;
+    /**
+     * Plans ghost i's route from (gx,gy) towards (tx,ty): up to PLAN_STEPS
+     * steps of an aStar path, as many chained routing-table reads (cheap enough
+     * to chain), or a single lookup of any other pathfinder. Returns the
+     * pathfinder lookups made.
+     */
+    private int buildPlan(int i, int gx, int gy, int tx, int ty, int key) {
+        int W = map.width();
+        int dirs = 0, steps = 0, lookups = 0;
+        if (pathfinder != null) {
+            int max = pathfinder instanceof RoutingTable ? PLAN_STEPS : 1;
+            for (int x = gx, y = gy; steps < max; ) {
+                lookups++;
+                int d = pathfinder.nextDirection(x, y, tx, ty);
+                if (d < 0) break;
+                dirs |= d << (2 * steps++);
+                x = map.wrapX(x + Constants.DELTAS[d][0]);
+                y = map.wrapY(y + Constants.DELTAS[d][1]);
+            }
+        } else {
+            int length = aStar(gx, gy, tx, ty);
+            for (int k = 1, prev = gy * W + gx; k < length && steps < PLAN_STEPS; prev = pathCells[k++]) {
+                int dx = pathCells[k] % W - prev % W, dy = pathCells[k] / W - prev / W;
+                // A step through a wrap-around tunnel shows up as a jump across the board
+                if (Math.abs(dx) > 1) dx = -Integer.signum(dx);
+                if (Math.abs(dy) > 1) dy = -Integer.signum(dy);
+                dirs |= getDirectionFromDelta(dx, dy) << (2 * steps++);
+            }
         }
+        planKey[i] = key;
+        planCell[i] = gy * W + gx;
+        planDirs[i] = dirs;
+        planLeft[i] = steps;
+        return lookups;
     }
 
-    private Deque<Point> findPath(int sx, int sy, int tx, int ty) {
-        int H = map.length, W = map[0].length;
-        boolean[][] seen = new boolean[H][W];
-        Point[][] parent = new Point[H][W];
-        Deque<Point> q = new ArrayDeque<>();
-        seen[sy][sx] = true;
-        q.addLast(new Point(sx, sy));
-
-        int[] dx = {1, -1, 0, 0};
-        int[] dy = {0, 0, 1, -1};
+    // Next cell on the way out of the ghost box; returns the pathfinder lookups made
+    private int moveGhostOutOfBox(int idx) {
+        if (pathfinder != null) {
+            int d = pathfinder.nextDirection(ghostX[idx], ghostY[idx], ghostDoor.x, ghostDoor.y);
+            if (d >= 0) {
+                nextGhostX[idx] = map.wrapX(ghostX[idx] + Constants.DELTAS[d][0]);
+                nextGhostY[idx] = map.wrapY(ghostY[idx] + Constants.DELTAS[d][1]);
+            }
+            return 1;
+        }
+        if (exitStep[idx] == exitLength[idx]) {
+            int length = findPath(ghostX[idx], ghostY[idx], ghostDoor.x, ghostDoor.y);
+            if (exitPaths[idx].length < length) exitPaths[idx] = new int[length];
+            System.arraycopy(pathCells, 0, exitPaths[idx], 0, length);
+            exitLength[idx] = length;
+            exitStep[idx] = 0;
+        }
+        if (exitStep[idx] < exitLength[idx]) {
+            int next = exitPaths[idx][exitStep[idx]++];
+            nextGhostX[idx] = next % map.width();
+            nextGhostY[idx] = next / map.width();
+        }
+        return 0;
+    }
 
-        while (!q.isEmpty()) {
-            Point p = q.removeFirst();
-            if (p.x == tx && p.y == ty) break;
+    /**
+     * Breadth-first path from (sx,sy) to (tx,ty), written to pathCells without
+     * the start cell; returns the number of cells. An unreachable target comes
+     * back as a one-step path straight to it, as it always has.
+     */
+    int findPath(int sx, int sy, int tx, int ty) {
+        int H = map.height(), W = map.width();
+        ensureScratch(W * H);
+        int mark = ++stamp;
+        int head = 0, tail = 0;
+        int start = sy * W + sx, target = ty * W + tx;
+        seen[start] = mark;
+        parent[start] = -1;
+        queue[tail++] = start;
+        if (metrics != null) metrics.findPathCalls++;
+
+        int[] dx = FIND_PATH_DX;
+        int[] dy = FIND_PATH_DY;
+
+        while (head < tail) {
+            int p = queue[head++];
+            if (metrics != null) metrics.findPathNodes++;
+            if (p == target) break;
+            int px = p % W, py = p / W;
             for (int d = 0; d < 4; d++) {
-                int nx = (p.x + dx[d] + W) % W;
-                int ny = (p.y + dy[d] + H) % H;
-                if (!seen[ny][nx] && map[ny][nx] != Constants.WALL) {
-                    seen[ny][nx] = true;
-                    parent[ny][nx] = p;
-                    q.addLast(new Point(nx, ny));
+                int nx = (px + dx[d] + W) % W;
+                int ny = (py + dy[d] + H) % H;
+                int q = ny * W + nx;
+                if (seen[q] != mark && !map.isWall(nx, ny)) {
+                    seen[q] = mark;
+                    parent[q] = p;
+                    queue[tail++] = q;
                 }
             }
         }
 
-        Deque<Point> path = new ArrayDeque<>();
-        Point current = new Point(tx, ty);
-        while (current != null && !(current.x == sx && current.y == sy)) {
-            path.addFirst(current);
-            current = parent[current.y][current.x];
-        }
-        return path;
+        int length = 0;
+        for (int c = target; c >= 0 && c != start; c = seen[c] == mark ? parent[c] : -1) length++;
+        if (pathCells.length < length) pathCells = new int[Math.max(length, pathCells.length * 2)];
+        int k = length;
+        for (int c = target; c >= 0 && c != start; c = seen[c] == mark ? parent[c] : -1) pathCells[--k] = c;
+        return length;
     }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.mycompany.pacman;
+
+/** Receives GameEvents records on a consumer's thread; see GameEvents for the fields. */
+public interface GameEventHandler {
+    void onEvent(int type, int gameTick, int x, int y, int value, int score);
+
+    /** After each non-empty batch, e.g. to flush. */
+    default void endOfBatch() {}
+
+    /** Once a started consumer has drained and stopped. */
+    default void close() {}
+}
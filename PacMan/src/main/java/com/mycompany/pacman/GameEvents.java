@@ -0,0 +1,177 @@
+package com.mycompany.pacman;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ring buffer of game events with one producer (the thread ticking the
+ * engine) and any number of consumers, each with its own cursor. Records are
+ * fixed-size int slots written in place, so publishing allocates nothing and
+ * never waits: a consumer that falls a whole ring behind loses the oldest
+ * events (counted in lost()) instead of holding up the game.
+ *
+ * Each slot carries the sequence number it holds, set after its fields are
+ * written; consumers read the fields between two reads of it and drop the
+ * record if the producer got there first.
+ *
+ * <pre>
+ * engine.events = new GameEvents(1 &lt;&lt; 14);
+ * GameEvents.Consumer log = engine.events.start("event-log", new EventLog(out));
+ * ...
+ * log.close();   // drains what was published, then stops the thread
+ * </pre>
+ */
+public class GameEvents {
+    public static final int PELLET = 0, POWER_PELLET = 1, GHOST_EATEN = 2, LIFE_LOST = 3,
+            GAME_WON = 4, GAME_LOST = 5;
+    private static final String[] NAMES = {"pellet", "power_pellet", "ghost_eaten", "life_lost", "game_won", "game_lost"};
+    private static final int FIELDS = 6;    // type, tick, x, y, value, score
+    static final int BATCH = 256;           // events handed to a consumer thread per poll at most
+
+    private final int mask;
+    private final int[] records;
+    private final AtomicLongArray stamps;   // sequence held by each slot, -1 while it is being written
+    private final AtomicLong published = new AtomicLong();   // sequences below this are readable
+    private long next;                      // producer only
+
+    /** A ring holding the last {@code capacity} events, rounded up to a power of two. */
+    public GameEvents(int capacity) {
+        int n = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        mask = n - 1;
+        records = new int[n * FIELDS];
+        stamps = new AtomicLongArray(n);
+        for (int i = 0; i < n; i++) stamps.set(i, -1);
+    }
+
+    public static String name(int type) {
+        return NAMES[type];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /** Events published so far. */
+    public long published() {
+        return published.get();
+    }
+
+    /**
+     * Producer thread only. {@code value} depends on the type: points scored
+     * for pellets and ghosts, lives left for LIFE_LOST, 0 otherwise; {@code
+     * score} is the score after the event.
+     */
+    public void publish(int type, int tick, int x, int y, int value, int score) {
+        long seq = next++;
+        int slot = (int) seq & mask;
+        stamps.setOpaque(slot, -1);
+        VarHandle.storeStoreFence();
+        int o = slot * FIELDS;
+        records[o] = type;
+        records[o + 1] = tick;
+        records[o + 2] = x;
+        records[o + 3] = y;
+        records[o + 4] = value;
+        records[o + 5] = score;
+        stamps.setRelease(slot, seq);
+        published.setRelease(seq + 1);
+    }
+
+    /** A cursor that sees events published from now on; poll it from one thread. */
+    public Consumer consumer() {
+        return new Consumer(published.get());
+    }
+
+    /** Polls a new consumer on its own daemon thread, handing events to {@code handler} in batches. */
+    public Consumer start(String name, GameEventHandler handler) {
+        Consumer c = consumer();
+        c.thread = new Thread(() -> c.drive(handler), name);
+        c.thread.setDaemon(true);
+        c.thread.start();
+        return c;
+    }
+
+    public final class Consumer implements AutoCloseable {
+        private long cursor;
+        private long lost;
+        private Thread thread;
+        private volatile boolean running = true;
+
+        private Consumer(long cursor) {
+            this.cursor = cursor;
+        }
+
+        /** Events dropped because this consumer fell a whole ring behind. */
+        public long lost() {
+            return lost;
+        }
+
+        /**
+         * Hands up to {@code max} waiting events to {@code handler}, then calls
+         * its endOfBatch() if there were any; returns how many.
+         */
+        public int poll(GameEventHandler handler, int max) {
+            long end = published.getAcquire();
+            int n = 0;
+            while (cursor < end && n < max) {
+                if (end - cursor > mask + 1) {
+                    skip(end);
+                    continue;
+                }
+                int slot = (int) cursor & mask, o = slot * FIELDS;
+                long before = stamps.getAcquire(slot);
+                int type = records[o], tick = records[o + 1], x = records[o + 2], y = records[o + 3];
+                int value = records[o + 4], score = records[o + 5];
+                VarHandle.loadLoadFence();
+                if (before != cursor || stamps.getOpaque(slot) != cursor) {
+                    // Overwritten while we read it: the producer has lapped us
+                    end = published.getAcquire();
+                    skip(end);
+                    continue;
+                }
+                handler.onEvent(type, tick, x, y, value, score);
+                cursor++;
+                n++;
+            }
+            if (n > 0) handler.endOfBatch();
+            return n;
+        }
+
+        // Jump to half a ring behind the producer, so it doesn't lap us again straight away
+        private void skip(long end) {
+            long resume = Math.max(cursor + 1, end - (mask + 1) / 2);
+            lost += resume - cursor;
+            cursor = resume;
+        }
+
+        private void drive(GameEventHandler handler) {
+            int idle = 0;
+            while (running) {
+                if (poll(handler, BATCH) > 0) {
+                    idle = 0;
+                } else if (++idle < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(this, 1_000_000);
+                }
+            }
+            while (poll(handler, BATCH) > 0) { }
+            handler.close();
+        }
+
+        /** Stops a started consumer after it has handled everything published so far. */
+        @Override
+        public void close() {
+            running = false;
+            if (thread == null) return;
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
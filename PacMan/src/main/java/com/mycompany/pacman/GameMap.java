@@ -0,0 +1,88 @@
+package com.mycompany.pacman;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A level: the maze plus where everyone starts, where ghosts leave the box
+ * and which corners they retreat to in scatter phase. Immutable once built;
+ * engines copy the board before playing on it.
+ */
+public final class GameMap {
+    public final String name;
+    public final Board board;
+    public final Point pacmanSpawn;
+    public final Point[] ghostSpawns;
+    public final Point ghostDoor;      // ghosts in the box head here first
+    public final Point ghostHome;      // eaten ghosts go back here
+    public final Point[] scatterTargets;
+
+    private static GameMap classic;
+
+    public GameMap(String name, Board board, Point pacmanSpawn, Point[] ghostSpawns,
+                   Point ghostDoor, Point ghostHome, Point[] scatterTargets) {
+        if (ghostSpawns.length == 0) throw new IllegalArgumentException(name + ": no ghost spawns");
+        if (scatterTargets.length == 0) throw new IllegalArgumentException(name + ": no scatter targets");
+        this.name = name;
+        this.board = board;
+        this.pacmanSpawn = pacmanSpawn;
+        this.ghostSpawns = ghostSpawns;
+        this.ghostDoor = ghostDoor;
+        this.ghostHome = ghostHome;
+        this.scatterTargets = scatterTargets;
+        checkOpen(pacmanSpawn, "pacman spawn");
+        for (Point p : ghostSpawns) checkOpen(p, "ghost spawn");
+        checkOpen(ghostDoor, "ghost door");
+        checkOpen(ghostHome, "ghost home");
+    }
+
+    private void checkOpen(Point p, String what) {
+        if (p.x < 0 || p.y < 0 || p.x >= board.width() || p.y >= board.height() || board.isWall(p.x, p.y)) {
+            throw new IllegalArgumentException(name + ": " + what + " " + p.x + "," + p.y + " is not an open cell");
+        }
+    }
+
+    /** The same level metadata on a different maze, e.g. a tiled copy of this one. */
+    public GameMap withBoard(String name, Board board) {
+        return new GameMap(name, board, pacmanSpawn, ghostSpawns, ghostDoor, ghostHome, new Point[] {
+            new Point(0, 0),
+            new Point(board.width() - 1, 0),
+            new Point(board.width() - 1, board.height() - 1),
+            new Point(0, board.height() - 1)
+        });
+    }
+
+    /**
+     * The same level with {@code count} ghosts, spawning in turn on this level's
+     * spawn cells; named e.g. "classic@500" so replays can find it again.
+     */
+    public GameMap withGhosts(int count) {
+        if (count < 1) throw new IllegalArgumentException("Need at least one ghost, got " + count);
+        Point[] spawns = new Point[count];
+        for (int i = 0; i < count; i++) spawns[i] = ghostSpawns[i % ghostSpawns.length];
+        int at = name.lastIndexOf('@');
+        String base = at > 0 ? name.substring(0, at) : name;
+        return new GameMap(base + "@" + count, board, pacmanSpawn, spawns, ghostDoor, ghostHome, scatterTargets);
+    }
+
+    public int width() {
+        return board.width();
+    }
+
+    public int height() {
+        return board.height();
+    }
+
+    /** The original maze, read from the maps/classic.txt resource on first use. */
+    public static synchronized GameMap classic() {
+        if (classic == null) {
+            try {
+                classic = MapLoader.resource("maps/classic.txt");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return classic;
+    }
+}
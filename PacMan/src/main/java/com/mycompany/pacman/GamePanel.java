@@ -1,24 +1,97 @@
 package com.mycompany.pacman;
 
-import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayDeque;
+import java.awt.image.BufferStrategy;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
-import java.awt.geom.Ellipse2D;
-import java.awt.geom.Point2D;
-import java.awt.RadialGradientPaint;
-import java.awt.BasicStroke;
 
-public class GamePanel extends JPanel implements KeyListener {
-    private final GameEngine engine = new GameEngine();
+/**
+ * Game view with its own loop thread. The loop owns the engine: it ticks at a
+ * fixed rate (catching up if it falls behind), applies input the AWT thread
+ * posts to a CommandQueue, and renders as fast as the BufferStrategy allows,
+ * interpolating entity positions between ticks.
+ */
+public class GamePanel extends Canvas implements KeyListener, BoardListener, GameEventHandler, Runnable {
+    static final long TICK_NANOS = 100_000_000L;   // 10 logic ticks per second
+    private static final int MAX_CATCH_UP = 5;
+    private static final int POPUP_TICKS = 40;
+    private static final Rectangle HEADLESS_SCREEN = new Rectangle(1920, 1080);
+    private static final int SWARM = Integer.getInteger("pacman.ghosts", 0);   // ghosts per game, 0 = the level's own
+
+    // Commands from the AWT thread: type in the high bits, argument in the low 16
+    private static final int CMD_DIRECTION = 1 << 16;
+    private static final int CMD_START = 2 << 16;
+    private static final int CMD_MENU_CLICK = 3 << 16;
+    private static final int CMD_MENU_MOVE = 4 << 16;
+    private static final int CMD_TOGGLE_OVERLAY = 5 << 16;
+    private static final int CMD_TOGGLE_AUTOPILOT = 6 << 16;
+
+    private final GameEngine engine;
     public boolean inMainMenu = true;
+    public boolean showHighScores = false;
     public int selectedMenuItem = -1;
     private int desiredDirX = 0;
     private int desiredDirY = 0;
+    private int desiredDir = -1;
+    private Path replayDir;        // -Dpacman.replays; null records nothing
+    private Replay.Recorder recorder;
+    private volatile Thread replayWriter;
+    private Autopilot autopilot;   // P toggles; null while the player steers
+    private StateEncoder spectatorEncoder;
+    private StateBroadcaster spectators;
+    private HighScoreStore highScores;
+    private LevelLibrary levels;
+    private int levelIndex;
+    private List<HighScoreStore.Entry> leaderboard = List.of();
+    private final CommandQueue commands = new CommandQueue(256);
+    private Thread loop;
+    private volatile boolean running;
+
+    // Positions before the last tick, for interpolation
+    private int prevPacmanX, prevPacmanY;
+    private int[] prevGhostX, prevGhostY;
+
+    // Walls, floor and pellets come from cached chunks; eaten pellets wait here for the next frame
+    private GameMap mazeLevel;
+    private boolean pelletsStale = true;
+    private int[] clearedCells = new int[16];
+    private int clearedCount = 0;
+    private final SpriteCache sprites = new SpriteCache();
+    private final BoardChunks chunks = new BoardChunks(sprites);
+    private int cameraX, cameraY;   // board pixel at the window's top left
+    // Points floating over where they were scored, fed by the HUD's cursor on the event ring
+    private GameEvents.Consumer hudEvents;
+    private GameEvents.Consumer eventLog;
+    private final int[] popupX = new int[16], popupY = new int[16], popupValue = new int[16], popupTick = new int[16];
+    private int popupNext;
+
+    // F3 debug overlay; its text is rebuilt twice a second, not every frame
+    private boolean showOverlay;
+    private String[] overlayLines = new String[0];
+    private long overlaySampledAt, overlayAllocated;
+    private long overlayGcCount;
 
     public GamePanel() {
+        this(new GameEngine());
+    }
+
+    GamePanel(GameEngine engine) {
+        this.engine = engine;
+        engine.addBoardListener(this);
+        if (engine.events == null) engine.events = new GameEvents(1 << 12);
+        hudEvents = engine.events.consumer();
+        prevGhostX = new int[engine.ghostCount()];
+        prevGhostY = new int[engine.ghostCount()];
+        savePositions();
+        setIgnoreRepaint(true);
+        setBackground(Color.BLACK);
         setFocusable(true);
         addKeyListener(this);
         setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
@@ -26,169 +99,362 @@ public class GamePanel extends JPanel implements KeyListener {
         addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                if(inMainMenu) {
-                    handleMenuClick(e.getY());
-                }
+                commands.offer(CMD_MENU_CLICK | e.getY());
             }
         });
 
         addMouseMotionListener(new MouseAdapter() {
             @Override
             public void mouseMoved(MouseEvent e) {
-                if(inMainMenu) {
-                    updateMenuSelection(e.getY());
-                    repaint();
-                }
+                commands.offer(CMD_MENU_MOVE | e.getY());
             }
         });
-        
-        new Timer(100, e -> {
-            if(!inMainMenu && !engine.gameOver) {
-                engine.movePacman(desiredDirX, desiredDirY);
-                engine.moveGhosts();
-                engine.checkCollisions();
-                engine.updateAnimations();
-                repaint();
+    }
+
+    /** Starts the loop thread; call once the panel is displayable. */
+    public void start() {
+        createBufferStrategy(2);
+        requestFocus();
+        running = true;
+        String replays = System.getProperty("pacman.replays");
+        if (replays != null) replayDir = Path.of(replays);
+        try {
+            highScores = HighScoreStore.open(Path.of(System.getProperty("pacman.scores",
+                    System.getProperty("user.home") + "/.pacman/scores.pmhs")));
+        } catch (IOException e) {
+            System.err.println("High scores disabled: " + e.getMessage());
+        }
+        String levelDir = System.getProperty("pacman.levels");
+        if (levelDir != null) {
+            try {
+                levels = new LevelLibrary(Path.of(levelDir));
+            } catch (IOException e) {
+                System.err.println("Level directory unusable, playing the classic maze: " + e.getMessage());
+            }
+        }
+        String eventFile = System.getProperty("pacman.eventLog");
+        if (eventFile != null) {
+            try {
+                eventLog = engine.events.start("event-log", new EventLog(Path.of(eventFile)));
+            } catch (IOException e) {
+                System.err.println("Event log disabled: " + e.getMessage());
+            }
+        }
+        if (Boolean.getBoolean("pacman.autopilot")) autopilot = new Autopilot(TICK_NANOS * 8 / 10);
+        String port = System.getProperty("pacman.spectatorPort");
+        if (port != null) {
+            try {
+                spectatorEncoder = new StateEncoder(engine);
+                spectators = new StateBroadcaster();
+                spectators.listen(Integer.parseInt(port));
+            } catch (IOException e) {
+                System.err.println("Spectator stream disabled: " + e.getMessage());
+                spectators = null;
+            }
+        }
+        loop = new Thread(this, "game-loop");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    /** Stops the loop thread, then everything it fed; call before the window goes away. */
+    public void stop() {
+        running = false;
+        Thread t = loop;
+        if (t != null && t != Thread.currentThread()) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (autopilot != null) autopilot.stop();
+        if (eventLog != null) eventLog.close();
+        Thread writer = replayWriter;
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (highScores != null) {
+            try {
+                highScores.close();   // forces the log and writes the final checkpoint
+            } catch (IOException e) {
+                System.err.println("Could not close high scores: " + e);
             }
-        }).start();
+            highScores = null;
+        }
     }
 
     @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2 = (Graphics2D) g;
+    public void run() {
+        BufferStrategy strategy = getBufferStrategy();
+        long nextTick = System.nanoTime();
+        while (running) {
+            processCommands();
+
+            long now = System.nanoTime();
+            int steps = 0;
+            while (now - nextTick >= 0 && steps < MAX_CATCH_UP) {
+                if (!inMainMenu && !engine.gameOver) {
+                    savePositions();
+                    int planned = autopilot != null ? autopilot.decision() : -1;
+                    if (planned >= 0) steer(planned);
+                    if (recorder != null) recorder.record(desiredDir);
+                    engine.tick(desiredDirX, desiredDirY);
+                    if (autopilot != null && !engine.gameOver) autopilot.request(engine);
+                    if (spectators != null) spectators.publish(spectatorEncoder);
+                    if (engine.gameOver) {
+                        if (recorder != null) saveReplay();
+                        saveScore();
+                        if (engine.gameWon) levelIndex++;
+                    }
+                }
+                nextTick += TICK_NANOS;
+                steps++;
+            }
+            // Too far behind (debugger, suspend): drop the backlog instead of fast-forwarding
+            if (now - nextTick >= 0) nextTick = now + TICK_NANOS;
+
+            double alpha = 1.0 - (double) (nextTick - now) / TICK_NANOS;
+            Metrics metrics = engine.metrics;
+            long frameStart = metrics != null ? System.nanoTime() : 0;
+            do {
+                do {
+                    Graphics2D g2 = (Graphics2D) strategy.getDrawGraphics();
+                    try {
+                        render(g2, Math.max(0, Math.min(1, alpha)));
+                    } finally {
+                        g2.dispose();
+                    }
+                } while (strategy.contentsRestored());
+                strategy.show();
+            } while (strategy.contentsLost());
+            Toolkit.getDefaultToolkit().sync();
+            if (metrics != null) metrics.recordFrame(frameStart, System.nanoTime(), !inMainMenu);
+            Thread.yield();
+        }
+    }
+
+    private void processCommands() {
+        int cmd;
+        while ((cmd = commands.poll()) != CommandQueue.EMPTY) {
+            int arg = cmd & 0xFFFF;
+            switch (cmd & 0xFFFF0000) {
+                case CMD_DIRECTION:
+                    steer(arg);
+                    break;
+                case CMD_START:
+                    if (showHighScores) showHighScores = false;
+                    else if (inMainMenu || engine.gameOver) startGame();
+                    break;
+                case CMD_MENU_CLICK:
+                    if (showHighScores) showHighScores = false;
+                    else if (inMainMenu) handleMenuClick(arg);
+                    break;
+                case CMD_MENU_MOVE:
+                    if (inMainMenu && !showHighScores) updateMenuSelection(arg);
+                    break;
+                case CMD_TOGGLE_OVERLAY:
+                    showOverlay = !showOverlay;
+                    if (showOverlay && engine.metrics == null) engine.metrics = new Metrics();
+                    else if (!showOverlay && !Metrics.ENABLED) engine.metrics = null;
+                    overlaySampledAt = 0;
+                    break;
+                case CMD_TOGGLE_AUTOPILOT:
+                    if (autopilot != null) {
+                        autopilot.stop();
+                        autopilot = null;
+                    } else {
+                        autopilot = new Autopilot(TICK_NANOS * 8 / 10);
+                        if (!inMainMenu && !engine.gameOver) autopilot.request(engine);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void steer(int dir) {
+        desiredDirX = Constants.DELTAS[dir][0];
+        desiredDirY = Constants.DELTAS[dir][1];
+        desiredDir = dir;
+        engine.lastDirection = dir;
+    }
+
+    // With a level directory, each win moves on to the next level; files are reread if they changed
+    private void startGame() {
+        inMainMenu = false;
+        long seed = GameRandom.mix(System.nanoTime());
+        GameMap level = null;
+        if (levels != null) {
+            try {
+                levels.refresh();
+                if (levels.size() > 0) level = levels.get(levelIndex % levels.size());
+            } catch (IOException e) {
+                System.err.println("Could not load level: " + e.getMessage());
+            }
+        }
+        if (SWARM > 0) level = (level != null ? level : GameMap.classic()).withGhosts(SWARM);
+        if (level != null) engine.reset(level, seed);
+        else engine.reset(seed);
+        savePositions();
+        Arrays.fill(popupTick, Integer.MIN_VALUE / 2);
+        if (replayDir != null) recorder = new Replay.Recorder(engine);
+        if (autopilot != null) autopilot.request(engine);
+    }
+
+    // Opt-in, so reported games can be reproduced with ReplayPlayer; written off the loop thread
+    // so the disk never holds up a tick
+    private void saveReplay() {
+        Replay replay = recorder.finish(engine.score);
+        Path file = replayDir.resolve("game-" + System.currentTimeMillis() + ".pmr");
+        replayWriter = Thread.ofPlatform().name("replay-writer").daemon().start(() -> {
+            try {
+                replay.write(file);
+            } catch (IOException e) {
+                System.err.println("Could not save replay " + file + ": " + e);
+            }
+        });
+    }
+
+    private void saveScore() {
+        if (highScores == null) return;
+        String player = System.getProperty("pacman.player", System.getProperty("user.name", "YOU"));
+        try {
+            highScores.add(player.toUpperCase().substring(0, Math.min(3, player.length())),
+                    engine.score, engine.gameTick, engine.seed());
+        } catch (IOException e) {
+            System.err.println("Could not save score: " + e);
+        }
+    }
+
+    private void savePositions() {
+        if (prevGhostX.length != engine.ghostCount()) {
+            prevGhostX = new int[engine.ghostCount()];
+            prevGhostY = new int[engine.ghostCount()];
+        }
+        prevPacmanX = engine.pacmanX;
+        prevPacmanY = engine.pacmanY;
+        System.arraycopy(engine.ghostX, 0, prevGhostX, 0, prevGhostX.length);
+        System.arraycopy(engine.ghostY, 0, prevGhostY, 0, prevGhostY.length);
+    }
+
+    // Pixel position between the last two ticks; jumps (tunnel wrap, respawn) aren't smoothed
+    private static int lerp(int prev, int cur, double alpha) {
+        int S = Constants.TILE_SIZE;
+        if (Math.abs(cur - prev) > 1) return cur * S;
+        return (int) Math.round((prev + (cur - prev) * alpha) * S);
+    }
+
+    /** Draws one complete frame; {@code alpha} is how far we are into the current tick. */
+    void render(Graphics2D g2, double alpha) {
+        g2.setColor(getBackground());
+        g2.fillRect(0, 0, getWidth(), getHeight());
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
                         RenderingHints.VALUE_ANTIALIAS_ON);
-        if(inMainMenu) drawMainMenu(g2);
+        if(inMainMenu && showHighScores) drawHighScores(g2);
+        else if(inMainMenu) drawMainMenu(g2);
         else if(engine.gameOver) drawGameOver(g2);
-        else drawGame(g2);
+        else drawGame(g2, alpha);
     }
 
     // Keep original drawing methods
-    private void drawGame(Graphics g) {
+    private void drawGame(Graphics g, double alpha) {
+        sprites.validate((Graphics2D) g);
+        moveCamera(alpha);
+        g.translate(-cameraX, -cameraY);
         drawMap((Graphics2D) g);
-        drawPacman((Graphics2D) g);
-        drawGhosts((Graphics2D) g);
+        drawPacman((Graphics2D) g, alpha);
+        drawGhosts((Graphics2D) g, alpha);
+        hudEvents.poll(this, GameEvents.BATCH);
+        drawPopups(g);
+        g.translate(cameraX, cameraY);
         drawHUD(g);
+        if (showOverlay) drawDebugOverlay(g);
     }
 
-    private void drawMap(Graphics2D g2) {
-        int S = Constants.TILE_SIZE;
-        for (int y = 0; y < engine.map.length; y++) {
-          for (int x = 0; x < engine.map[y].length; x++) {
-            int px = x*S, py = y*S;
-
-            // floor
-            g2.setColor(new Color(10,10,30));
-            g2.fillRect(px, py, S, S);
-
-            switch(engine.map[y][x]) {
-              case Constants.WALL:
-                // 1) glow
-                g2.setColor(new Color(0,120,255,60));
-                g2.fillRoundRect(px-3, py-3, S+6, S+6, 8,8);
-                // 2) stroke
-                g2.setStroke(new BasicStroke(2));
-                g2.setColor(new Color(0,180,255));
-                g2.drawRoundRect(px+1, py+1, S-2, S-2, 6,6);
-                break;
-              case Constants.PELLET:
-                drawPellet(g2, px+S/2f, py+S/2f, 3, new Color(255,255,255,200));
-                break;
-              case Constants.POWER_PELLET:
-                drawPellet(g2, px+S/2f, py+S/2f, 6, new Color(255,255,200,220));
-                break;
-              case Constants.GHOST_BOX:
-                g2.setColor(new Color(20,20,80,180));
-                g2.fillRect(px,py,S,S);
-                break;
-            }
-          }
+    @Override
+    public void cellCleared(int x, int y) {
+        if (clearedCount == clearedCells.length) {
+            clearedCells = Arrays.copyOf(clearedCells, clearedCount * 2);
         }
+        clearedCells[clearedCount++] = y * engine.map.width() + x;
     }
-    
-    private void drawPellet(Graphics2D g2, float cx, float cy, float r, Color glow) {
-        Point2D center = new Point2D.Float(cx,cy);
-        float[] dist = {0f,1f};
-        Color[] colors = { glow, new Color(glow.getRed(), glow.getGreen(), glow.getBlue(),0) };
-        RadialGradientPaint p = new RadialGradientPaint(center, r, dist, colors);
-        g2.setPaint(p);
-        g2.fill(new Ellipse2D.Float(cx-r, cy-r, 2*r, 2*r));
-    }
-
-    private void drawPacman(Graphics2D g2) {
-        int S = Constants.TILE_SIZE;    
-        int px = engine.pacmanX * S;
-        int py = engine.pacmanY * S;
-        
-        int direction = engine.getDirectionFromDelta(engine.dirX, engine.dirY);
-        int baseAngle = 0;
-
-        switch (direction) {
-            case Constants.LEFT:
-                baseAngle = 180;
-                break;
-            case Constants.RIGHT:
-                baseAngle = 0;
-                break;
-            case Constants.UP:
-                baseAngle = 90;
-                break;
-            case Constants.DOWN:
-                baseAngle = 270;
-                break;
-        }
-
-        int startAngle = (baseAngle + engine.mouthAngle) % 360;
-        int extent = 360 - 2 * engine.mouthAngle;
 
-        // 1) Soft halo glow behind Pac‑Man
-        g2.setColor(new Color(255, 255,  0,  80));
-        g2.fillOval(px - 4, py - 4, S + 8, S + 8);
-
-        // 2) The crisp, yellow Pac‑Man on top
-        g2.setColor(Color.YELLOW);
-        g2.fillArc(px, py, S, S, startAngle, extent);
+    @Override
+    public void onEvent(int type, int gameTick, int x, int y, int value, int score) {
+        if (type != GameEvents.GHOST_EATEN && type != GameEvents.POWER_PELLET) return;
+        int i = popupNext++ & (popupTick.length - 1);
+        popupX[i] = x;
+        popupY[i] = y;
+        popupValue[i] = value;
+        popupTick[i] = gameTick;
     }
 
-    private void drawGhosts(Graphics2D g2) {
+    private void drawPopups(Graphics g) {
         int S = Constants.TILE_SIZE;
-        Color[] ghostColors = { Color.RED, Color.PINK, Color.CYAN, Color.ORANGE };
+        g.setColor(Color.CYAN);
+        g.setFont(new Font("Arial", Font.BOLD, 12));
+        for (int i = 0; i < popupTick.length; i++) {
+            int age = engine.gameTick - popupTick[i];
+            if (age < 0 || age >= POPUP_TICKS || !onScreen(popupX[i] * S, popupY[i] * S)) continue;
+            g.drawString(Integer.toString(popupValue[i]), popupX[i] * S, popupY[i] * S - age / 4);
+        }
+    }
 
-        for (int i = 0; i < engine.ghosts.length; i++) {
-            int[] ghost = engine.ghosts[i];
-            int gx = ghost[0], gy = ghost[1], type = ghost[2];
+    @Override
+    public void boardReset() {
+        pelletsStale = true;
+    }
 
-            Color base;
-            if (engine.powerMode) {
-                base = ((engine.powerTimer / 10) % 2 == 0)
-                     ? Color.BLUE
-                     : Color.WHITE;
-            } else {
-                base = ghostColors[type];
-            }
+    // Only the chunks under the window are drawn; eaten pellets are patched into cached ones
+    private void drawMap(Graphics2D g2) {
+        if (mazeLevel != engine.level || pelletsStale) {
+            mazeLevel = engine.level;
+            chunks.reset(engine.map);
+            pelletsStale = false;
+            clearedCount = 0;
+        }
+        for (int i = 0; i < clearedCount; i++) {
+            chunks.cellCleared(clearedCells[i] % engine.map.width(), clearedCells[i] / engine.map.width());
+        }
+        clearedCount = 0;
+        chunks.draw(g2, cameraX, cameraY, getWidth(), getHeight());
+    }
 
-            int px = gx * S, py = gy * S;
+    // Keeps pacman centred, stopping at the edges of the board; boards that fit stay put
+    private void moveCamera(double alpha) {
+        int S = Constants.TILE_SIZE;
+        int boardW = engine.map.width() * S, boardH = engine.map.height() * S;
+        int px = lerp(prevPacmanX, engine.pacmanX, alpha) + S / 2;
+        int py = lerp(prevPacmanY, engine.pacmanY, alpha) + S / 2;
+        cameraX = Math.max(0, Math.min(boardW - getWidth(), px - getWidth() / 2));
+        cameraY = Math.max(0, Math.min(boardH - getHeight(), py - getHeight() / 2));
+    }
 
-            // 1) glow halo
-            g2.setColor(new Color(base.getRed(), base.getGreen(), base.getBlue(), 80));
-            g2.fillOval(px - 4, py - 4, S + 8, S + 8);
+    private boolean onScreen(int px, int py) {
+        int S = Constants.TILE_SIZE;
+        return px > cameraX - 2 * S && px < cameraX + getWidth() + S
+                && py > cameraY - 2 * S && py < cameraY + getHeight() + S;
+    }
 
-            // 2) body
-            g2.setColor(base);
-            g2.fillOval(px, py, S, S);
-            g2.setColor(base.brighter());
-            g2.fillArc(px, py, S, S, 0, 180);
+    private void drawPacman(Graphics2D g2, double alpha) {
+        int direction = engine.getDirectionFromDelta(engine.dirX, engine.dirY);
+        int px = lerp(prevPacmanX, engine.pacmanX, alpha), py = lerp(prevPacmanY, engine.pacmanY, alpha);
+        if (onScreen(px, py)) sprites.drawPacman(g2, px, py, direction, engine.mouthAngle);
+    }
 
-            // 3) eyes
-            g2.setColor(Color.WHITE);
-            g2.fillOval(px + 4, py + 4, 6, 6);
-            g2.fillOval(px + 10, py + 4, 6, 6);
+    private void drawGhosts(Graphics2D g2, double alpha) {
+        int frightened = (engine.powerTicksLeft() / 10) % 2 == 0
+                ? SpriteCache.FRIGHTENED : SpriteCache.FRIGHTENED_FLASH;
 
-            // 4) pupils
-            g2.setColor(base == Color.WHITE ? Color.BLACK : Color.BLUE);
-            g2.fillOval(px + 5, py + 5, 3, 3);
-            g2.fillOval(px + 11, py + 5, 3, 3);
+        for (int i = 0; i < engine.ghostCount(); i++) {
+            int px = lerp(prevGhostX[i], engine.ghostX[i], alpha), py = lerp(prevGhostY[i], engine.ghostY[i], alpha);
+            if (!onScreen(px, py)) continue;
+            int colour = engine.powerMode ? frightened : engine.ghostType[i] % 4;
+            sprites.drawGhost(g2, px, py, colour);
         }
     }
 
@@ -201,7 +467,50 @@ public class GamePanel extends JPanel implements KeyListener {
             g.fillArc(20 + (i * 30), 40, 25, 25, 30, 300);
         }
 
-        g.drawString("LEVEL 01", getWidth() - 150, 25);
+        g.drawString(String.format("LEVEL %02d", levelIndex + 1), getWidth() - 150, 25);
+        if (autopilot != null) g.drawString("AUTOPILOT", getWidth() / 2 - 55, 25);
+    }
+
+    private void drawDebugOverlay(Graphics g) {
+        long now = System.nanoTime();
+        if (now - overlaySampledAt > 500_000_000L) updateOverlay(now);
+        g.setColor(new Color(0, 0, 0, 170));
+        g.fillRect(getWidth() - 290, 40, 280, 16 * overlayLines.length + 10);
+        g.setColor(Color.GREEN);
+        g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        for (int i = 0; i < overlayLines.length; i++) {
+            g.drawString(overlayLines[i], getWidth() - 282, 58 + i * 16);
+        }
+    }
+
+    private void updateOverlay(long now) {
+        Metrics m = engine.metrics;
+        if (m == null) return;
+        long allocated = -1;
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            allocated = threads.getCurrentThreadAllocatedBytes();
+        }
+        long gcCount = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+        }
+        String allocRate = "n/a";
+        if (overlaySampledAt != 0 && allocated >= 0) {
+            double secs = (now - overlaySampledAt) / 1e9;
+            allocRate = String.format("%.1f KB/s", (allocated - overlayAllocated) / secs / 1024);
+        }
+        overlayLines = new String[] {
+            String.format("tick  p50 %6.1f us  p99 %6.1f us", m.tick.percentile(50) / 1e3, m.tick.percentile(99) / 1e3),
+            String.format("frame p50 %6.2f ms  p99 %6.2f ms", m.frame.percentile(50) / 1e6, m.frame.percentile(99) / 1e6),
+            String.format("ghosts p99 %5.1f us  slow %d/%d", m.moveGhosts.percentile(99) / 1e3, m.slowTicks, m.slowFrames),
+            String.format("plans deferred %d, over budget %d ticks", m.plansDeferred, m.planOverruns),
+            "alloc " + allocRate + " (game thread)",
+            "GC count " + gcCount + (overlaySampledAt != 0 ? " (+" + (gcCount - overlayGcCount) + ")" : ""),
+            autopilot != null ? String.format("autopilot %,.0f rollouts/s", autopilot.rolloutsPerSecond()) : "autopilot off (P)",
+        };
+        overlaySampledAt = now;
+        overlayAllocated = allocated;
+        overlayGcCount = gcCount;
     }
 
     private void drawGameOver(Graphics g) {
@@ -245,6 +554,27 @@ public class GamePanel extends JPanel implements KeyListener {
         }
     }
 
+    private void drawHighScores(Graphics g) {
+        g.setColor(Color.YELLOW);
+        g.setFont(new Font("Arial", Font.BOLD, 48));
+        g.drawString("HIGH SCORES", getWidth()/2 - 160, 110);
+
+        g.setFont(new Font(Font.MONOSPACED, Font.BOLD, 22));
+        if (leaderboard.isEmpty()) {
+            g.setColor(Color.WHITE);
+            g.drawString("No games played yet", getWidth()/2 - 130, 200);
+        }
+        for (int i = 0; i < leaderboard.size(); i++) {
+            HighScoreStore.Entry e = leaderboard.get(i);
+            g.setColor(i == 0 ? Color.YELLOW : Color.WHITE);
+            g.drawString(String.format("%2d.  %-4s %7d", i + 1, e.name(), e.score()),
+                    getWidth()/2 - 130, 170 + i * 30);
+        }
+        g.setColor(Color.GRAY);
+        g.setFont(new Font("Arial", Font.BOLD, 18));
+        g.drawString("Click or press SPACE to go back", getWidth()/2 - 135, getHeight() - 40);
+    }
+
     @Override
     public void keyPressed(KeyEvent e) {
         int key = e.getKeyCode();
@@ -252,37 +582,28 @@ public class GamePanel extends JPanel implements KeyListener {
         switch (key) {
             case KeyEvent.VK_UP:
             case KeyEvent.VK_W:
-                desiredDirX = 0;
-                desiredDirY = -1;
-                engine.lastDirection = Constants.UP;
+                commands.offer(CMD_DIRECTION | Constants.UP);
                 break;
             case KeyEvent.VK_DOWN:
             case KeyEvent.VK_S:
-                desiredDirX = 0;
-                desiredDirY = 1;
-                engine.lastDirection = Constants.DOWN;
+                commands.offer(CMD_DIRECTION | Constants.DOWN);
                 break;
             case KeyEvent.VK_LEFT:
             case KeyEvent.VK_A:
-                desiredDirX = -1;
-                desiredDirY = 0;
-                engine.lastDirection = Constants.LEFT;
+                commands.offer(CMD_DIRECTION | Constants.LEFT);
                 break;
             case KeyEvent.VK_RIGHT:
             case KeyEvent.VK_D:
-                desiredDirX = 1;
-                desiredDirY = 0;
-                engine.lastDirection = Constants.RIGHT;
+                commands.offer(CMD_DIRECTION | Constants.RIGHT);
                 break;
             case KeyEvent.VK_SPACE:
-                if (inMainMenu || engine.gameOver) {
-                    inMainMenu = false;
-                    engine.gameOver = false;
-                    engine.gameWon = false;
-                    engine.score = 0;
-                    engine.lives = 3;
-                    engine.resetPositions(true);
-                }
+                commands.offer(CMD_START);
+                break;
+            case KeyEvent.VK_F3:
+                commands.offer(CMD_TOGGLE_OVERLAY);
+                break;
+            case KeyEvent.VK_P:
+                commands.offer(CMD_TOGGLE_AUTOPILOT);
                 break;
         }
     }
@@ -306,21 +627,24 @@ public class GamePanel extends JPanel implements KeyListener {
         updateMenuSelection(mouseY);
         switch(selectedMenuItem) {
             case 0:
-                inMainMenu = false;
+                startGame();
                 break;
             case 1:
-                // Handle high scores
+                leaderboard = highScores != null ? highScores.top(10) : List.of();
+                showHighScores = true;
                 break;
             case 2:
                 System.exit(0);
                 break;
         }
-        repaint();
     }
     
+    // The whole board if it fits on the screen, otherwise as much as fits; the camera scrolls the rest
     @Override
     public Dimension getPreferredSize() {
-        return new Dimension(engine.map[0].length * Constants.TILE_SIZE, 
-                           engine.map.length * Constants.TILE_SIZE);
+        Rectangle screen = GraphicsEnvironment.isHeadless() ? HEADLESS_SCREEN
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+        return new Dimension(Math.min(engine.map.width() * Constants.TILE_SIZE, screen.width - 32),
+                Math.min(engine.map.height() * Constants.TILE_SIZE, screen.height - 64));
     }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.mycompany.pacman;
+
+/**
+ * Small seedable, splittable generator (SplitMix64). Unlike java.util.Random
+ * its whole state is one long, so games can be reproduced from a seed and the
+ * state can be saved and restored.
+ */
+public class GameRandom {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    public long nextLong() {
+        return mix(state += GOLDEN_GAMMA);
+    }
+
+    public int nextInt(int bound) {
+        return toInt(nextLong(), bound);
+    }
+
+    public double nextDouble() {
+        return toDouble(nextLong());
+    }
+
+    /** A new generator whose sequence is independent of this one. */
+    public GameRandom split() {
+        return new GameRandom(nextLong());
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    /**
+     * The n-th value (counting from 1) of a generator seeded with seed, without
+     * stepping through the ones before it; lets parallel work draw from one
+     * seed in any order.
+     */
+    public static long nth(long seed, long n) {
+        return mix(seed + n * GOLDEN_GAMMA);
+    }
+
+    static int toInt(long bits, int bound) {
+        // Lemire's multiply-shift, bias is negligible for the tiny bounds used here
+        return (int) (((bits >>> 32) * bound) >>> 32);
+    }
+
+    static double toDouble(long bits) {
+        return (bits >>> 11) * 0x1.0p-53;
+    }
+
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,82 @@
+package com.mycompany.pacman;
+
+import java.io.IOException;
+
+/**
+ * One hosted game: an engine, the queue its client posts directions to and
+ * the latest published state. Only the session's own thread touches the
+ * engine; everything a client or monitor may read is volatile.
+ */
+public class GameSession {
+    public final int id;
+    public final CommandQueue input = new CommandQueue(64);
+    final GameEngine engine;
+    final GameRandom seeds;
+    final Histogram tickNanos = new Histogram();   // time spent inside tick()
+    final Histogram lateness = new Histogram();    // how late each tick started
+    private int desiredDirX, desiredDirY;
+    HighScoreStore scores;                         // shared by every session of a host, may be null
+
+    // Published after every tick
+    private volatile int score;
+    private volatile int lives;
+    private volatile int gameTick;
+    private volatile int gamesPlayed;
+
+    GameSession(int id, long seed) {
+        this.id = id;
+        this.seeds = new GameRandom(seed);
+        this.engine = new GameEngine(seeds.nextLong());
+    }
+
+    /** Applies queued input, advances one tick and starts a new game when this one ends. */
+    void tick() {
+        int cmd;
+        while ((cmd = input.poll()) != CommandQueue.EMPTY) {
+            if (cmd < 0 || cmd > 3) continue;
+            desiredDirX = Constants.DELTAS[cmd][0];
+            desiredDirY = Constants.DELTAS[cmd][1];
+            engine.lastDirection = cmd;
+        }
+        engine.tick(desiredDirX, desiredDirY);
+        score = engine.score;
+        lives = engine.lives;
+        gameTick = engine.gameTick;
+        if (engine.gameOver) {
+            gamesPlayed++;
+            if (scores != null) {
+                try {
+                    scores.add("S" + id % 1000, engine.score, engine.gameTick, engine.seed());
+                } catch (IOException e) {
+                    System.err.println("Session " + id + ": could not save score: " + e);
+                }
+            }
+            engine.reset(seeds.nextLong());
+        }
+    }
+
+    public int score() {
+        return score;
+    }
+
+    public int lives() {
+        return lives;
+    }
+
+    public int gameTick() {
+        return gameTick;
+    }
+
+    public int gamesPlayed() {
+        return gamesPlayed;
+    }
+
+    /** Start-of-tick lateness in nanoseconds; read it once the host has stopped for exact numbers. */
+    public Histogram tickLatency() {
+        return lateness;
+    }
+
+    public Histogram tickCost() {
+        return tickNanos;
+    }
+}
@@ -0,0 +1,65 @@
+package com.mycompany.pacman;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Complete GameEngine state packed into primitive arrays: scalars and ghosts
+ * in one int[], the RNG state, and the pellet plane of the board. The plane
+ * is shared copy-on-write with the board it came from, so taking a
+ * snapshot copies a few dozen ints and restoring one allocates nothing.
+ *
+ * Snapshot objects can be reused: GameEngine.snapshot(into) overwrites them.
+ */
+public final class GameSnapshot {
+    // Layout of state[]; ghosts follow as {x, y, type, dir} per ghost, then their
+    // plans as {key, cell, dirs, left} per ghost, then the ticks each is still held
+    // in the box. Pending timers are not stored: restore schedules them again from
+    // POWER_TIMER, GAME_TICK (phase switches) and the hold times.
+    static final int MOUTH_ANGLE = 0, MOUTH_OPENING = 1, PACMAN_X = 2, PACMAN_Y = 3,
+            DIR_X = 4, DIR_Y = 5, LAST_DIRECTION = 6, POWER_MODE = 7, POWER_TIMER = 8,
+            SCORE = 9, LIVES = 10, GAME_OVER = 11, GAME_WON = 12, GAME_TICK = 13,
+            GHOST_COUNT = 14, PLAN_CURSOR = 15, HEADER = 16;
+
+    private static final int MAGIC = 0x50414D53; // "PAMS"
+
+    int[] state = new int[0];
+    long rngState;
+    long[] pellets;             // power pellets included; which cells hold those is fixed by the map
+    int pelletsLeft;
+
+    public int gameTick() {
+        return state[GAME_TICK];
+    }
+
+    public int score() {
+        return state[SCORE];
+    }
+
+    /** Size of the serialized form written by writeTo. */
+    public int byteSize() {
+        return 4 + 4 + state.length * 4 + 8 + 4 + 4 + pellets.length * 8;
+    }
+
+    public void writeTo(ByteBuffer out) {
+        out.putInt(MAGIC);
+        out.putInt(state.length);
+        for (int v : state) out.putInt(v);
+        out.putLong(rngState);
+        out.putInt(pelletsLeft);
+        out.putInt(pellets.length);
+        for (long v : pellets) out.putLong(v);
+    }
+
+    public static GameSnapshot readFrom(ByteBuffer in) {
+        if (in.getInt() != MAGIC) throw new IllegalArgumentException("Not a game snapshot");
+        GameSnapshot s = new GameSnapshot();
+        s.state = new int[in.getInt()];
+        for (int i = 0; i < s.state.length; i++) s.state[i] = in.getInt();
+        s.rngState = in.getLong();
+        s.pelletsLeft = in.getInt();
+        int words = in.getInt();
+        s.pellets = new long[words];
+        for (int i = 0; i < words; i++) s.pellets[i] = in.getLong();
+        return s;
+    }
+}
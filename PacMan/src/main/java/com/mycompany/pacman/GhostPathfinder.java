@@ -0,0 +1,56 @@
+package com.mycompany.pacman;
+
+/**
+ * How ghosts find their way to a target. One instance is shared by every
+ * engine playing a maze with the same walls, on any thread, so a lookup may
+ * only depend on its arguments and the walls; that also keeps games
+ * replayable.
+ *
+ * -Dpacman.pathfinder picks the implementation for new engines:
+ * "auto" (default) uses a RoutingTable when the maze is small enough and
+ * HPA* otherwise, "table" and "hpa" force one, and "astar" leaves
+ * GameEngine.pathfinder null so every step runs the engine's full-grid A*.
+ * Different kinds can break ties differently, so replays record the kind
+ * (see kindOf) and are played back with it.
+ */
+public interface GhostPathfinder {
+    String KIND = System.getProperty("pacman.pathfinder", "auto");
+
+    /**
+     * Direction of the first step from (sx,sy) towards (tx,ty), or -1 when
+     * either cell is a wall, they coincide or the target can't be reached.
+     */
+    int nextDirection(int sx, int sy, int tx, int ty);
+
+    static GhostPathfinder forMap(Board map) {
+        return forMap(KIND, map);
+    }
+
+    /** The kind forMap resolves to {@code pathfinder}: "table", "hpa", or "astar" for null. */
+    static String kindOf(GhostPathfinder pathfinder) {
+        if (pathfinder == null) return "astar";
+        if (pathfinder instanceof RoutingTable) return "table";
+        if (pathfinder instanceof HierarchicalPathfinder) return "hpa";
+        return pathfinder.getClass().getSimpleName();   // can't be recreated; forMap rejects it
+    }
+
+    static GhostPathfinder forMap(String kind, Board map) {
+        switch (kind) {
+            case "auto": {
+                RoutingTable table = RoutingTable.forMap(map);
+                return table != null ? table : HierarchicalPathfinder.forMap(map);
+            }
+            case "table": {
+                RoutingTable table = RoutingTable.forMap(map);
+                if (table == null) {
+                    throw new IllegalArgumentException("Maze has more than " + RoutingTable.MAX_CELLS
+                            + " walkable cells, too many for a routing table");
+                }
+                return table;
+            }
+            case "hpa": return HierarchicalPathfinder.forMap(map);
+            case "astar": return null;
+            default: throw new IllegalArgumentException("Unknown pathfinder: " + kind);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.mycompany.pacman;
+
+/**
+ * Heads for the closest pellet by BFS and refuses to step next to a ghost
+ * unless power mode is on. Good enough to finish games for soak tests.
+ */
+public class GreedyBot implements Controller {
+    private final GameRandom rand;
+    private int[] queue = new int[0];
+    private int[] firstDir = new int[0];
+    private int[] seen = new int[0];
+    private int stamp = 0;
+
+    public GreedyBot(long seed) {
+        this.rand = new GameRandom(seed);
+    }
+
+    @Override
+    public int nextDirection(GameEngine engine) {
+        Board map = engine.map;
+        int H = map.height(), W = map.width();
+        if (queue.length != W * H) {
+            queue = new int[W * H];
+            firstDir = new int[W * H];
+            seen = new int[W * H];
+            stamp = 0;
+        }
+        stamp++;
+
+        int start = engine.pacmanY * W + engine.pacmanX;
+        int head = 0, tail = 0;
+        seen[start] = stamp;
+        // Random first-move order so equal choices don't always resolve the same way
+        int offset = rand.nextInt(4);
+        for (int i = 0; i < 4; i++) {
+            int d = (i + offset) & 3;
+            int nx = map.wrapX(engine.pacmanX + Constants.DELTAS[d][0]);
+            int ny = map.wrapY(engine.pacmanY + Constants.DELTAS[d][1]);
+            int p = ny * W + nx;
+            if (map.isWall(nx, ny) || seen[p] == stamp || dangerous(engine, nx, ny)) continue;
+            seen[p] = stamp;
+            firstDir[p] = d;
+            queue[tail++] = p;
+        }
+        while (head < tail) {
+            int p = queue[head++];
+            int x = p % W, y = p / W;
+            if (map.hasPellet(x, y)) return firstDir[p];
+            for (int d = 0; d < 4; d++) {
+                int nx = map.wrapX(x + Constants.DELTAS[d][0]);
+                int ny = map.wrapY(y + Constants.DELTAS[d][1]);
+                int q = ny * W + nx;
+                if (map.isWall(nx, ny) || seen[q] == stamp) continue;
+                seen[q] = stamp;
+                firstDir[q] = firstDir[p];
+                queue[tail++] = q;
+            }
+        }
+        return tail > 0 ? firstDir[queue[0]] : -1;
+    }
+
+    private boolean dangerous(GameEngine engine, int x, int y) {
+        if (engine.powerMode) return false;
+        Board map = engine.map;
+        if (engine.ghostAt(x, y)) return true;
+        for (int d = 0; d < 4; d++) {
+            if (engine.ghostAt(map.wrapX(x + Constants.DELTAS[d][0]), map.wrapY(y + Constants.DELTAS[d][1]))) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,429 @@
+package com.mycompany.pacman;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Hierarchical A* (HPA*) for mazes too big for a RoutingTable. The maze is cut
+ * into 16x16 clusters. Every open stretch of border between two neighbouring
+ * clusters, including the wrap-around borders at the map edges, gets an
+ * entrance cell on each side, and each cluster precomputes the in-cluster
+ * distances between its entrances. A lookup searches the source and target
+ * clusters cell by cell and only the entrance graph in between, so its cost
+ * follows the distance to the target rather than the size of the map. Paths
+ * are near-shortest: they pass through the entrance cells. A search gives up
+ * after SEARCH_LIMIT entrances and heads for the explored entrance closest to
+ * the target, which keeps a lookup's cost bounded on any map size.
+ *
+ * Clusters are immutable and shared, so update() builds the pathfinder for an
+ * edited maze by rebuilding only the clusters whose cells or borders changed.
+ * forMap() does that automatically when a same-sized maze is among the last
+ * few it cached, e.g. when a level file is edited while the game runs.
+ */
+public class HierarchicalPathfinder implements GhostPathfinder {
+    public static final int CLUSTER = 16;
+    public static final int SEARCH_LIMIT = 1024;
+    private static final int NODE_BITS = 5;   // 16 border cells give at most 8 entrances per side
+    private static final int NONE = -2;       // start entrance: the first step is its border crossing
+    private static final int GOAL = -1;
+
+    private static final Map<RoutingTable.Key, HierarchicalPathfinder> CACHE =
+            RoutingTable.lruCache(RoutingTable.CACHED_MAZES);
+    private static final ThreadLocal<Search> SEARCH = ThreadLocal.withInitial(Search::new);
+
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final int cols;
+    private final int rows;
+    private final long[] walls;
+    private final Cluster[] clusters;
+    private int rebuilt;
+
+    private static final class Cluster {
+        final int[] nodes;    // entrance cell (y*width+x) << 2 | side it crosses
+        final short[] dist;   // nodes x nodes in-cluster distances, -1 when not connected
+
+        Cluster(int[] nodes, short[] dist) {
+            this.nodes = nodes;
+            this.dist = dist;
+        }
+    }
+
+    private HierarchicalPathfinder(Board map) {
+        width = map.width();
+        height = map.height();
+        stride = (width + 63) >>> 6;
+        cols = (width + CLUSTER - 1) / CLUSTER;
+        rows = (height + CLUSTER - 1) / CLUSTER;
+        walls = map.wallPlane().clone();
+        clusters = new Cluster[cols * rows];
+    }
+
+    /** Returns the shared pathfinder for the walls of {@code map}. */
+    public static HierarchicalPathfinder forMap(Board map) {
+        RoutingTable.Key key = new RoutingTable.Key(map);
+        HierarchicalPathfinder found = CACHE.get(key);
+        if (found != null) return found;
+        // Update the most recently used same-sized maze, the likeliest to differ in only a few walls
+        HierarchicalPathfinder like = null;
+        synchronized (CACHE) {
+            for (HierarchicalPathfinder p : CACHE.values()) {
+                if (p.width == map.width() && p.height == map.height()) like = p;
+            }
+        }
+        HierarchicalPathfinder built = like != null ? like.update(map) : null;
+        if (built == null) {
+            built = new HierarchicalPathfinder(map);
+            built.build(null);
+        }
+        HierarchicalPathfinder raced = CACHE.putIfAbsent(key, built);
+        return raced != null ? raced : built;
+    }
+
+    /**
+     * The pathfinder for {@code map}, a same-sized maze with some walls changed.
+     * Clusters away from the changes are shared with this one.
+     */
+    public HierarchicalPathfinder update(Board map) {
+        if (map.width() != width || map.height() != height) {
+            throw new IllegalArgumentException("Maze is " + map.width() + "x" + map.height()
+                    + ", expected " + width + "x" + height);
+        }
+        HierarchicalPathfinder next = new HierarchicalPathfinder(map);
+        boolean[] dirty = new boolean[clusters.length];
+        for (int w = 0; w < walls.length; w++) {
+            for (long diff = walls[w] ^ next.walls[w]; diff != 0; diff &= diff - 1) {
+                int x = (w % stride) << 6 | Long.numberOfTrailingZeros(diff);
+                markDirty(dirty, x, w / stride);
+            }
+        }
+        for (int k = 0; k < clusters.length; k++) {
+            if (!dirty[k]) next.clusters[k] = clusters[k];
+        }
+        next.build(dirty);
+        return next;
+    }
+
+    // A changed border cell also moves the entrances of the cluster across that border
+    private void markDirty(boolean[] dirty, int x, int y) {
+        int cx = x / CLUSTER, cy = y / CLUSTER;
+        dirty[cy * cols + cx] = true;
+        if (x % CLUSTER == 0) dirty[cy * cols + (cx + cols - 1) % cols] = true;
+        if (x % CLUSTER == CLUSTER - 1 || x == width - 1) dirty[cy * cols + (cx + 1) % cols] = true;
+        if (y % CLUSTER == 0) dirty[(cy + rows - 1) % rows * cols + cx] = true;
+        if (y % CLUSTER == CLUSTER - 1 || y == height - 1) dirty[(cy + 1) % rows * cols + cx] = true;
+    }
+
+    private void build(boolean[] dirty) {
+        rebuilt = 0;
+        for (int k = 0; k < clusters.length; k++) {
+            if (dirty == null || dirty[k]) rebuilt++;
+        }
+        IntStream.range(0, clusters.length).parallel().forEach(k -> {
+            if (dirty == null || dirty[k]) clusters[k] = buildCluster(k);
+        });
+    }
+
+    /** Clusters built for this pathfinder rather than shared with the one it was updated from. */
+    public int rebuiltClusters() {
+        return rebuilt;
+    }
+
+    public int clusterCount() {
+        return clusters.length;
+    }
+
+    private Cluster buildCluster(int k) {
+        int x0 = k % cols * CLUSTER, y0 = k / cols * CLUSTER;
+        int x1 = Math.min(x0 + CLUSTER, width), y1 = Math.min(y0 + CLUSTER, height);
+        int[] nodes = new int[4 << (NODE_BITS - 2)];
+        int n = 0;
+        for (int d = 0; d < 4; d++) n = entrances(nodes, n, x0, y0, x1, y1, d);
+        nodes = Arrays.copyOf(nodes, n);
+
+        int cw = x1 - x0;
+        int[] dist = new int[CLUSTER * CLUSTER];
+        int[] queue = new int[CLUSTER * CLUSTER];
+        short[] between = new short[n * n];
+        for (int i = 0; i < n; i++) {
+            int cell = nodes[i] >>> 2;
+            localSearch(k, cell % width, cell / width, dist, null, queue);
+            for (int j = 0; j < n; j++) {
+                int other = nodes[j] >>> 2;
+                between[i * n + j] = (short) dist[(other / width - y0) * cw + other % width - x0];
+            }
+        }
+        return new Cluster(nodes, between);
+    }
+
+    // One entrance per open stretch of the border on side d, in the middle of the stretch.
+    // The cluster across the border finds the same stretches, so both pick the same row/column.
+    private int entrances(int[] nodes, int n, int x0, int y0, int x1, int y1, int d) {
+        boolean vertical = d == Constants.RIGHT || d == Constants.LEFT;
+        int bx = d == Constants.RIGHT ? x1 - 1 : x0;
+        int by = d == Constants.DOWN ? y1 - 1 : y0;
+        int len = vertical ? y1 - y0 : x1 - x0;
+        int run = -1;
+        for (int i = 0; i <= len; i++) {
+            boolean open = false;
+            if (i < len) {
+                int x = vertical ? bx : x0 + i, y = vertical ? y0 + i : by;
+                open = !isWall(x, y)
+                        && !isWall(wrapX(x + Constants.DELTAS[d][0]), wrapY(y + Constants.DELTAS[d][1]));
+            }
+            if (open && run < 0) {
+                run = i;
+            } else if (!open && run >= 0) {
+                int mid = run + (i - 1 - run) / 2;
+                int x = vertical ? bx : x0 + mid, y = vertical ? y0 + mid : by;
+                nodes[n++] = (y * width + x) << 2 | d;
+                run = -1;
+            }
+        }
+        return n;
+    }
+
+    // Breadth-first search from (sx,sy) that stays inside cluster k; dist is -1 where it can't reach
+    private void localSearch(int k, int sx, int sy, int[] dist, byte[] first, int[] queue) {
+        int x0 = k % cols * CLUSTER, y0 = k / cols * CLUSTER;
+        int cw = Math.min(x0 + CLUSTER, width) - x0, ch = Math.min(y0 + CLUSTER, height) - y0;
+        Arrays.fill(dist, 0, cw * ch, -1);
+        int s = (sy - y0) * cw + sx - x0;
+        dist[s] = 0;
+        int head = 0, tail = 0;
+        queue[tail++] = s;
+        while (head < tail) {
+            int u = queue[head++];
+            int ux = u % cw, uy = u / cw;
+            for (int d = 0; d < 4; d++) {
+                int vx = ux + Constants.DELTAS[d][0], vy = uy + Constants.DELTAS[d][1];
+                if (vx < 0 || vy < 0 || vx >= cw || vy >= ch) continue;
+                int v = vy * cw + vx;
+                if (dist[v] >= 0 || isWall(x0 + vx, y0 + vy)) continue;
+                dist[v] = dist[u] + 1;
+                if (first != null) first[v] = u == s ? (byte) d : first[u];
+                queue[tail++] = v;
+            }
+        }
+    }
+
+    @Override
+    public int nextDirection(int sx, int sy, int tx, int ty) {
+        if ((sx == tx && sy == ty) || isWall(sx, sy) || isWall(tx, ty)) return -1;
+        Search s = SEARCH.get();
+        int sc = clusterAt(sx, sy), tc = clusterAt(tx, ty);
+        localSearch(sc, sx, sy, s.fromSource, s.firstStep, s.queue);
+        if (sc == tc) {
+            int t = localIndex(tc, tx + ty * width);
+            if (s.fromSource[t] >= 0) return s.firstStep[t];
+        }
+        localSearch(tc, tx, ty, s.toTarget, null, s.queue);
+        try {
+            return searchEntrances(s, sc, tc, tx, ty);
+        } finally {
+            s.clear();
+        }
+    }
+
+    // A* over the entrance graph from every entrance the source reaches to the target;
+    // each label carries the first step of its path
+    private int searchEntrances(Search s, int sc, int tc, int tx, int ty) {
+        s.aim(width, height, tx, ty);
+        Cluster src = clusters[sc];
+        for (int i = 0; i < src.nodes.length; i++) {
+            int cell = src.nodes[i] >>> 2;
+            int local = localIndex(sc, cell);
+            int g = s.fromSource[local];
+            if (g >= 0) s.relax(sc << NODE_BITS | i, cell, g, g == 0 ? NONE : s.firstStep[local]);
+        }
+        int expanded = 0, bestDir = -1, bestH = Integer.MAX_VALUE;
+        while (s.size > 0) {
+            int slot = s.pop();
+            int id = s.ids[slot];
+            if (id == GOAL) return s.dirs[slot];
+            if (s.closed[slot]) continue;
+            s.closed[slot] = true;
+            int g = s.g[slot], dir = s.dirs[slot];
+            int k = id >>> NODE_BITS, i = id & ((1 << NODE_BITS) - 1);
+            Cluster c = clusters[k];
+            int cell = c.nodes[i] >>> 2, side = c.nodes[i] & 3;
+            int h = s.h[slot];
+            if (h < bestH) {
+                bestH = h;
+                bestDir = dir == NONE ? side : dir;
+            }
+            if (++expanded > SEARCH_LIMIT) return bestDir;
+
+            if (k == tc && dir != NONE) {
+                int left = s.toTarget[localIndex(tc, cell)];
+                if (left >= 0) s.relax(GOAL, -1, g + left, dir);
+            }
+
+            int px = wrapX(cell % width + Constants.DELTAS[side][0]);
+            int py = wrapY(cell / width + Constants.DELTAS[side][1]);
+            int pk = clusterAt(px, py);
+            int[] across = clusters[pk].nodes;
+            int want = (py * width + px) << 2 | (side ^ 1);
+            for (int j = 0; j < across.length; j++) {
+                if (across[j] != want) continue;
+                s.relax(pk << NODE_BITS | j, want >>> 2, g + 1, dir == NONE ? side : dir);
+                break;
+            }
+
+            int n = c.nodes.length;
+            for (int j = 0; j < n; j++) {
+                int d = c.dist[i * n + j];
+                if (j == i || d < 0) continue;
+                s.relax(k << NODE_BITS | j, c.nodes[j] >>> 2, g + d, dir);
+            }
+        }
+        return -1;
+    }
+
+    private int clusterAt(int x, int y) {
+        return y / CLUSTER * cols + x / CLUSTER;
+    }
+
+    private int localIndex(int k, int cell) {
+        int x0 = k % cols * CLUSTER, y0 = k / cols * CLUSTER;
+        int cw = Math.min(x0 + CLUSTER, width) - x0;
+        return (cell / width - y0) * cw + cell % width - x0;
+    }
+
+    private boolean isWall(int x, int y) {
+        return (walls[y * stride + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    private int wrapX(int x) {
+        return x < 0 ? x + width : x >= width ? x - width : x;
+    }
+
+    private int wrapY(int y) {
+        return y < 0 ? y + height : y >= height ? y - height : y;
+    }
+
+    // Per-thread scratch: open-addressed node id -> slot table, per-slot labels and a binary heap
+    private static final class Search {
+        final int[] fromSource = new int[CLUSTER * CLUSTER];
+        final int[] toTarget = new int[CLUSTER * CLUSTER];
+        final byte[] firstStep = new byte[CLUSTER * CLUSTER];
+        final int[] queue = new int[CLUSTER * CLUSTER];
+
+        int[] table = new int[1024];  // slot + 1, 0 = empty
+        int[] ids = new int[512];
+        int[] g = new int[512];
+        int[] dirs = new int[512];
+        int[] h = new int[512];       // heuristic, worked out once per node
+        int[] pos = new int[512];     // where each slot sits in table
+        boolean[] closed = new boolean[512];
+        int slots;
+        long[] heap = new long[512];  // f << 32 | slot
+        int size;
+        int width, height, tx, ty;
+
+        void aim(int width, int height, int tx, int ty) {
+            this.width = width;
+            this.height = height;
+            this.tx = tx;
+            this.ty = ty;
+        }
+
+        // cell is -1 for the goal itself
+        void relax(int id, int cell, int cost, int dir) {
+            int slot = find(id);
+            if (slot < 0) {
+                slot = add(id);
+                h[slot] = cell < 0 ? 0 : heuristic(cell);
+            } else if (closed[slot] || cost >= g[slot]) {
+                return;
+            }
+            g[slot] = cost;
+            dirs[slot] = dir;
+            push((long) (cost + h[slot]) << 32 | slot);
+        }
+
+        // Manhattan distance on the torus, so it never overestimates across wrap-around edges
+        private int heuristic(int cell) {
+            int dx = Math.abs(cell % width - tx), dy = Math.abs(cell / width - ty);
+            return Math.min(dx, width - dx) + Math.min(dy, height - dy);
+        }
+
+        private int find(int id) {
+            int mask = table.length - 1;
+            for (int p = hash(id) & mask; table[p] != 0; p = (p + 1) & mask) {
+                if (ids[table[p] - 1] == id) return table[p] - 1;
+            }
+            return -1;
+        }
+
+        private int add(int id) {
+            if (slots == ids.length) {
+                int grown = slots * 2;
+                ids = Arrays.copyOf(ids, grown);
+                g = Arrays.copyOf(g, grown);
+                dirs = Arrays.copyOf(dirs, grown);
+                h = Arrays.copyOf(h, grown);
+                pos = Arrays.copyOf(pos, grown);
+                closed = Arrays.copyOf(closed, grown);
+            }
+            if (slots * 2 >= table.length) {
+                table = new int[table.length * 2];
+                for (int i = 0; i < slots; i++) place(i);
+            }
+            int slot = slots++;
+            ids[slot] = id;
+            closed[slot] = false;
+            place(slot);
+            return slot;
+        }
+
+        private void place(int slot) {
+            int mask = table.length - 1;
+            int p = hash(ids[slot]) & mask;
+            while (table[p] != 0) p = (p + 1) & mask;
+            table[p] = slot + 1;
+            pos[slot] = p;
+        }
+
+        private static int hash(int id) {
+            int h = id * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private void push(long entry) {
+            if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= entry) break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = entry;
+        }
+
+        int pop() {
+            long top = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+                if (last <= heap[child]) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return (int) top;
+        }
+
+        void clear() {
+            for (int i = 0; i < slots; i++) table[pos[i]] = 0;
+            slots = 0;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.mycompany.pacman;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Every finished game's score, in an append-only memory-mapped log of fixed
+ * 32-byte records, plus an in-memory top-N leaderboard.
+ *
+ * File layout: a 4 KB header, then records of
+ * time (8), seed (8), score (4), ticks (4), name (4 ASCII), CRC32C of the rest (4).
+ * The CRC is written last, so a record torn by a crash fails its check and
+ * is wiped on the next open.
+ *
+ * The header has two checkpoint slots written alternately. Each holds how
+ * many records it covers and the log positions of the top entries at that
+ * point. Opening loads the newer valid slot and scans only the records after
+ * it, so startup doesn't depend on how long the history is.
+ *
+ * add() may be called from any number of threads: each append reserves its
+ * position with one atomic increment and writes its own slot.
+ */
+public class HighScoreStore implements Closeable {
+    public static final int TOP_N = 100;
+    public static final int CHECKPOINT_INTERVAL = 4096;
+
+    static final int RECORD_SIZE = 32;
+    private static final int MAGIC = 0x504D4853; // "PMHS"
+    private static final int VERSION = 1;
+    static final int HEADER = 4096;
+    private static final int[] SLOTS = {1024, 2048};
+    private static final int SEGMENT_RECORDS = 1 << 16;  // records per mapping (2 MB)
+
+    public record Entry(long index, String name, int score, int ticks, long seed, long time) {}
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong appended = new AtomicLong();
+    private long recovered;         // positions below this are either records or wiped holes
+
+    // Sorted by score, best first; ties keep the earlier game first
+    private final Entry[] top = new Entry[TOP_N];
+    private int topCount;
+
+    // Guarded by the checkpoint lock
+    private final Object checkpointLock = new Object();
+    private long checkpointSeq;
+    private long checkpointCount;
+    private int repaired;
+
+    private HighScoreStore(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+    }
+
+    public static HighScoreStore open(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            HighScoreStore store = new HighScoreStore(channel);
+            store.load(file);
+            return store;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void load(Path file) throws IOException {
+        if (header.getInt(0) == 0) {
+            header.putInt(4, VERSION).putInt(8, RECORD_SIZE).putInt(0, MAGIC);
+        } else if (header.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a high score file");
+        } else if (header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE) {
+            throw new IOException("Unsupported high score file version " + header.getInt(4));
+        }
+
+        // Newest valid checkpoint: seq (8), count (8), n (4), crc (4), n log positions
+        int slot = -1;
+        for (int i = 0; i < SLOTS.length; i++) {
+            if (slotValid(SLOTS[i]) && (slot < 0 || header.getLong(SLOTS[i]) > checkpointSeq)) {
+                slot = i;
+                checkpointSeq = header.getLong(SLOTS[i]);
+            }
+        }
+        long records = Math.max(0, (channel.size() - HEADER) / RECORD_SIZE);
+        if (slot >= 0) {
+            int base = SLOTS[slot];
+            checkpointCount = Math.min(header.getLong(base + 8), records);
+            int n = header.getInt(base + 16);
+            for (int i = 0; i < n; i++) {
+                long index = header.getLong(base + 24 + i * 8);
+                Entry e = index < records ? readRecord(index) : null;
+                if (e != null) offerTop(e);
+            }
+        }
+
+        // Scan what was appended after the checkpoint, wiping torn records
+        long end = checkpointCount;
+        for (long i = checkpointCount; i < records; i++) {
+            if (isEmpty(i)) continue;   // the unused rest of the last mapping is zeroes
+            Entry e = readRecord(i);
+            if (e != null) {
+                offerTop(e);
+                end = i + 1;
+            } else {
+                wipe(i);
+                repaired++;
+            }
+        }
+        next.set(end);
+        recovered = end;
+        if (end > checkpointCount || repaired > 0) checkpoint();
+    }
+
+    private boolean slotValid(int base) {
+        int n = header.getInt(base + 16);
+        if (n < 0 || n > TOP_N) return false;
+        return header.getInt(base + 20) == crc(header, base, 20, base + 24, n * 8);
+    }
+
+    /** Appends a finished game and returns its entry. Safe to call from any thread. */
+    public Entry add(String name, int score, int ticks, long seed) throws IOException {
+        long index = next.getAndIncrement();
+        long time = System.currentTimeMillis();
+        MappedByteBuffer seg = segment(index);
+        int off = (int) (index % SEGMENT_RECORDS) * RECORD_SIZE;
+        seg.putLong(off, time);
+        seg.putLong(off + 8, seed);
+        seg.putInt(off + 16, score);
+        seg.putInt(off + 20, ticks);
+        seg.putInt(off + 24, packName(name));
+        int crc = crc(seg, off, 28, 0, 0);
+        VarHandle.releaseFence();   // fields before the CRC that makes them valid
+        seg.putInt(off + 28, crc);
+
+        Entry e = new Entry(index, unpackName(packName(name)), score, ticks, seed, time);
+        offerTop(e);
+        if (appended.incrementAndGet() % CHECKPOINT_INTERVAL == 0) checkpoint();
+        return e;
+    }
+
+    /** The record at a log position, or null for a hole or a record still being written. */
+    public Entry read(long index) throws IOException {
+        return index >= 0 && index < next.get() ? readRecord(index) : null;
+    }
+
+    private Entry readRecord(long index) throws IOException {
+        MappedByteBuffer seg = segment(index);
+        int off = (int) (index % SEGMENT_RECORDS) * RECORD_SIZE;
+        int crc = seg.getInt(off + 28);
+        VarHandle.acquireFence();
+        if (crc != crc(seg, off, 28, 0, 0)) return null;
+        return new Entry(index, unpackName(seg.getInt(off + 24)), seg.getInt(off + 16),
+                seg.getInt(off + 20), seg.getLong(off + 8), seg.getLong(off));
+    }
+
+    /** Best {@code n} scores, best first. */
+    public List<Entry> top(int n) {
+        synchronized (top) {
+            return new ArrayList<>(Arrays.asList(top).subList(0, Math.min(n, topCount)));
+        }
+    }
+
+    /** Number of log positions handed out so far (including any wiped holes). */
+    public long size() {
+        return next.get();
+    }
+
+    /** Torn records wiped when the file was opened. */
+    public int repaired() {
+        return repaired;
+    }
+
+    private void offerTop(Entry e) {
+        synchronized (top) {
+            if (topCount == TOP_N && !better(e, top[TOP_N - 1])) return;
+            for (int i = 0; i < topCount; i++) {
+                if (top[i].index() == e.index()) return;   // already there from the checkpoint
+            }
+            int pos = topCount == TOP_N ? TOP_N - 1 : topCount++;
+            while (pos > 0 && better(e, top[pos - 1])) {
+                top[pos] = top[pos - 1];
+                pos--;
+            }
+            top[pos] = e;
+        }
+    }
+
+    private static boolean better(Entry a, Entry b) {
+        return a.score() > b.score() || (a.score() == b.score() && a.index() < b.index());
+    }
+
+    /**
+     * Makes the records so far durable and writes a checkpoint covering the
+     * complete prefix of the log. Called every CHECKPOINT_INTERVAL appends and on close.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            // Appends finish out of order; only cover positions that are all done
+            long end = next.get();
+            long count = checkpointCount;
+            while (count < end && (count < recovered || read(count) != null)) count++;
+
+            MappedByteBuffer[] segs = segments;
+            for (long s = checkpointCount / SEGMENT_RECORDS; s < segs.length && s * SEGMENT_RECORDS < count; s++) {
+                segs[(int) s].force();
+            }
+            List<Entry> best = top(TOP_N);
+            int base = SLOTS[(int) ((checkpointSeq + 1) % SLOTS.length)];
+            header.putLong(base, checkpointSeq + 1);
+            header.putLong(base + 8, count);
+            header.putInt(base + 16, best.size());
+            for (int i = 0; i < best.size(); i++) header.putLong(base + 24 + i * 8, best.get(i).index());
+            header.putInt(base + 20, crc(header, base, 20, base + 24, best.size() * 8));
+            header.force();
+            checkpointSeq++;
+            checkpointCount = count;
+        }
+    }
+
+    private MappedByteBuffer segment(long index) throws IOException {
+        int s = (int) (index / SEGMENT_RECORDS);
+        MappedByteBuffer[] segs = segments;
+        if (s < segs.length) return segs[s];
+        synchronized (this) {
+            segs = segments;
+            if (s >= segs.length) {
+                MappedByteBuffer[] grown = Arrays.copyOf(segs, s + 1);
+                for (int i = segs.length; i <= s; i++) {
+                    grown[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                            HEADER + (long) i * SEGMENT_RECORDS * RECORD_SIZE, (long) SEGMENT_RECORDS * RECORD_SIZE);
+                }
+                segments = segs = grown;
+            }
+            return segs[s];
+        }
+    }
+
+    private boolean isEmpty(long index) throws IOException {
+        MappedByteBuffer seg = segment(index);
+        int off = (int) (index % SEGMENT_RECORDS) * RECORD_SIZE;
+        for (int i = 0; i < RECORD_SIZE; i += 8) {
+            if (seg.getLong(off + i) != 0) return false;
+        }
+        return true;
+    }
+
+    private void wipe(long index) throws IOException {
+        MappedByteBuffer seg = segment(index);
+        int off = (int) (index % SEGMENT_RECORDS) * RECORD_SIZE;
+        for (int i = 0; i < RECORD_SIZE; i += 8) seg.putLong(off + i, 0);
+    }
+
+    private static int crc(ByteBuffer buf, int off, int len, int off2, int len2) {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.slice(off, len));
+        if (len2 > 0) crc.update(buf.slice(off2, len2));
+        return (int) crc.getValue();
+    }
+
+    // Up to four ASCII characters, e.g. arcade initials
+    private static int packName(String name) {
+        byte[] b = name.getBytes(StandardCharsets.US_ASCII);
+        int packed = 0;
+        for (int i = 0; i < Math.min(4, b.length); i++) packed |= (b[i] & 0x7F) << (i * 8);
+        return packed;
+    }
+
+    private static String unpackName(int packed) {
+        StringBuilder sb = new StringBuilder(4);
+        for (int i = 0; i < 4 && (packed >>> (i * 8) & 0xFF) != 0; i++) sb.append((char) (packed >>> (i * 8) & 0xFF));
+        return sb.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpoint();
+        channel.close();
+    }
+
+    /**
+     * <pre>
+     * java -cp target/classes com.mycompany.pacman.HighScoreStore FILE [--append N] [--threads T] [--top K]
+     * </pre>
+     * Appends N random scores from T threads, then reopens the file and prints
+     * the open time and the leaderboard.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: HighScoreStore FILE [--append N] [--threads T] [--top K]");
+            System.exit(2);
+        }
+        Path file = Path.of(args[0]);
+        long appends = 0;
+        int threads = 1;
+        int show = 10;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--append": appends = Long.parseLong(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--top": show = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (appends > 0) {
+            try (HighScoreStore store = open(file)) {
+                long perThread = appends / threads;
+                Thread[] workers = new Thread[threads];
+                long start = System.nanoTime();
+                for (int t = 0; t < threads; t++) {
+                    GameRandom rand = new GameRandom(GameRandom.mix(System.nanoTime() + t));
+                    workers[t] = new Thread(() -> {
+                        try {
+                            for (long i = 0; i < perThread; i++) {
+                                store.add("BOT", rand.nextInt(12000), 900 + rand.nextInt(200), rand.nextLong());
+                            }
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    });
+                    workers[t].start();
+                }
+                for (Thread w : workers) w.join();
+                double secs = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Appended %,d scores from %d threads in %.2f s (%,.0f/s)%n",
+                        perThread * threads, threads, secs, perThread * threads / secs);
+            }
+        }
+        long start = System.nanoTime();
+        try (HighScoreStore store = open(file)) {
+            System.out.printf("Opened %,d records in %.2f ms (%d torn records wiped)%n",
+                    store.size(), (System.nanoTime() - start) / 1e6, store.repaired());
+            int rank = 1;
+            for (Entry e : store.top(show)) {
+                System.out.printf("%3d. %-4s %6d  (game %d, seed %d)%n", rank++, e.name(), e.score(), e.index(), e.seed());
+            }
+        }
+    }
+}
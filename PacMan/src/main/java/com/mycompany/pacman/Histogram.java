@@ -0,0 +1,81 @@
+package com.mycompany.pacman;
+
+import java.util.Arrays;
+
+/**
+ * HDR-style log-linear histogram of non-negative longs (typically nanoseconds).
+ * Each power of two is split into 32 sub-buckets, so percentiles are within
+ * about 3% of the true value while recording is a few arithmetic ops with no
+ * allocation. Single writer; readers may see slightly stale counts.
+ */
+public class Histogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_COUNT];
+    private long count;
+    private long sum;
+    private long max;
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts[index(value)]++;
+        count++;
+        sum += value;
+        if (value > max) max = value;
+    }
+
+    // Values below 32 are exact; above that the top 6 bits pick the bucket
+    private static int index(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        int sub = (int) (value >>> exp) & (SUB_COUNT - 1);
+        return (exp + 1) * SUB_COUNT + sub;
+    }
+
+    // Largest value that lands in bucket i, so percentiles err on the high side
+    private static long upperBound(int i) {
+        if (i < SUB_COUNT) return i;
+        int exp = i / SUB_COUNT - 1;
+        long sub = i % SUB_COUNT;
+        return ((SUB_COUNT | sub) << exp) + (1L << exp) - 1;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /** Value at the given percentile (0..100). */
+    public long percentile(double p) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    public void add(Histogram other) {
+        for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+}
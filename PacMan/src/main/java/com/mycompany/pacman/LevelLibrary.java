@@ -0,0 +1,83 @@
+package com.mycompany.pacman;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A directory of levels, loaded lazily. Opening only lists file names; a
+ * level is read the first time it is asked for and re-read when its file
+ * changes, so levels can be edited or dropped in while the game runs.
+ *
+ * A text level whose .pmap is missing or older is compiled on first load
+ * (when the directory is writable), and the .pmap is what gets loaded.
+ */
+public class LevelLibrary {
+    private final Path dir;
+    private volatile List<String> names;
+    private final Map<String, Loaded> cache = new ConcurrentHashMap<>();
+
+    private record Loaded(GameMap map, FileTime modified) {}
+
+    public LevelLibrary(Path dir) throws IOException {
+        this.dir = dir;
+        refresh();
+    }
+
+    /** Rescans the directory for added or removed levels. */
+    public void refresh() throws IOException {
+        TreeSet<String> found = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.{txt,pmap}")) {
+            for (Path f : files) found.add(MapLoader.baseName(f));
+        }
+        names = new ArrayList<>(found);
+        cache.keySet().retainAll(found);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public String name(int index) {
+        return names.get(index);
+    }
+
+    public GameMap get(int index) throws IOException {
+        return get(names.get(index));
+    }
+
+    public GameMap get(String name) throws IOException {
+        Path text = dir.resolve(name + ".txt");
+        Path compiled = dir.resolve(name + ".pmap");
+        FileTime textTime = Files.exists(text) ? Files.getLastModifiedTime(text) : null;
+        FileTime compiledTime = Files.exists(compiled) ? Files.getLastModifiedTime(compiled) : null;
+        if (textTime == null && compiledTime == null) throw new IOException("No level " + name + " in " + dir);
+
+        FileTime newest = compiledTime == null || (textTime != null && textTime.compareTo(compiledTime) > 0)
+                ? textTime : compiledTime;
+        Loaded loaded = cache.get(name);
+        if (loaded != null && loaded.modified().equals(newest)) return loaded.map();
+
+        GameMap map;
+        if (newest == textTime) {
+            map = MapLoader.load(text);
+            try {
+                MapLoader.write(map, compiled);
+                newest = Files.getLastModifiedTime(compiled);
+            } catch (IOException e) {
+                // Read-only install: keep using the text version
+            }
+        } else {
+            map = MapLoader.load(compiled);
+        }
+        cache.put(name, new Loaded(map, newest));
+        return map;
+    }
+}
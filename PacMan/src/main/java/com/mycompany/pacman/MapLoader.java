@@ -0,0 +1,220 @@
+package com.mycompany.pacman;
+
+import java.awt.Point;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes levels.
+ *
+ * Text (.txt): "key x,y ..." lines for pacman, ghosts, door, home and
+ * scatter, then "maze" followed by one line per row:
+ * '#' wall, '.' pellet, 'o' power pellet, '=' ghost box, ' ' empty.
+ * Short rows are padded with empty cells; '#' lines before "maze" are comments.
+ *
+ * Compiled (.pmap): magic, version, size and metadata as ints, then the four
+ * Board bit planes exactly as Board keeps them, little endian. Loading maps
+ * the file and bulk-copies the planes, so there is no per-cell parsing.
+ *
+ * <pre>
+ * java -cp target/classes com.mycompany.pacman.MapLoader level.txt... [--out DIR]
+ * </pre>
+ * compiles text levels to .pmap files next to them (or into DIR).
+ */
+public final class MapLoader {
+    private static final int MAGIC = 0x504D4150; // "PMAP"
+    private static final int VERSION = 1;
+
+    private MapLoader() {
+    }
+
+    /** Loads a .pmap or .txt level; the name is the file name without extension. */
+    public static GameMap load(Path file) throws IOException {
+        String name = baseName(file);
+        if (file.toString().endsWith(".pmap")) return readCompiled(name, file);
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(name, in, file.toString());
+        }
+    }
+
+    /** Loads a text level from the classpath. */
+    public static GameMap resource(String path) throws IOException {
+        InputStream stream = MapLoader.class.getClassLoader().getResourceAsStream(path);
+        if (stream == null) throw new IOException("Missing map resource " + path);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return parse(baseName(Path.of(path)), in, path);
+        }
+    }
+
+    static String baseName(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    public static GameMap parse(String name, BufferedReader in, String source) throws IOException {
+        Point pacman = null, door = null, home = null;
+        Point[] ghosts = null, scatter = null;
+        List<String> rows = new ArrayList<>();
+        boolean inMaze = false;
+        int lineNo = 0;
+        for (String line; (line = in.readLine()) != null; ) {
+            lineNo++;
+            if (inMaze) {
+                rows.add(line);
+                continue;
+            }
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+            String[] parts = trimmed.split("\\s+");
+            try {
+                switch (parts[0]) {
+                    case "pacman": pacman = points(parts)[0]; break;
+                    case "ghosts": ghosts = points(parts); break;
+                    case "door": door = points(parts)[0]; break;
+                    case "home": home = points(parts)[0]; break;
+                    case "scatter": scatter = points(parts); break;
+                    case "maze": inMaze = true; break;
+                    default: throw new IOException("unknown key '" + parts[0] + "'");
+                }
+            } catch (IOException | RuntimeException e) {
+                throw new IOException(source + ":" + lineNo + ": " + e.getMessage());
+            }
+        }
+        while (!rows.isEmpty() && rows.get(rows.size() - 1).isBlank()) rows.remove(rows.size() - 1);
+        if (rows.isEmpty()) throw new IOException(source + ": no maze");
+        if (pacman == null || ghosts == null) throw new IOException(source + ": pacman and ghosts are required");
+
+        int width = 0;
+        for (String row : rows) width = Math.max(width, row.length());
+        Board board = new Board(width, rows.size());
+        for (int y = 0; y < rows.size(); y++) {
+            String row = rows.get(y);
+            for (int x = 0; x < width; x++) {
+                char c = x < row.length() ? row.charAt(x) : ' ';
+                int cell;
+                switch (c) {
+                    case '#': cell = Constants.WALL; break;
+                    case '.': cell = Constants.PELLET; break;
+                    case 'o': cell = Constants.POWER_PELLET; break;
+                    case '=': cell = Constants.GHOST_BOX; break;
+                    case ' ': cell = Constants.EMPTY; break;
+                    default:
+                        throw new IOException(source + ": maze row " + (y + 1) + ": unexpected '" + c + "'");
+                }
+                board.set(x, y, cell);
+            }
+        }
+        if (door == null) door = ghosts[0];
+        if (home == null) home = ghosts[0];
+        if (scatter == null) {
+            scatter = new Point[] {new Point(0, 0), new Point(width - 1, 0),
+                new Point(width - 1, rows.size() - 1), new Point(0, rows.size() - 1)};
+        }
+        try {
+            return new GameMap(name, board, pacman, ghosts, door, home, scatter);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(source + ": " + e.getMessage());
+        }
+    }
+
+    private static Point[] points(String[] parts) throws IOException {
+        if (parts.length < 2) throw new IOException(parts[0] + " needs at least one x,y");
+        Point[] points = new Point[parts.length - 1];
+        for (int i = 1; i < parts.length; i++) {
+            String[] xy = parts[i].split(",");
+            if (xy.length != 2) throw new IOException("bad point '" + parts[i] + "'");
+            points[i - 1] = new Point(Integer.parseInt(xy[0]), Integer.parseInt(xy[1]));
+        }
+        return points;
+    }
+
+    /** Writes the compiled form; the file is replaced atomically so running games can hot-swap it. */
+    public static void write(GameMap map, Path file) throws IOException {
+        int header = 4 * (4 + 6 + 1 + 2 * map.ghostSpawns.length + 1 + 2 * map.scatterTargets.length);
+        header = (header + 7) & ~7;
+        ByteBuffer out = ByteBuffer.allocate(header + 8 * Board.planeLongs(map.width(), map.height()))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putInt(map.width()).putInt(map.height());
+        putPoint(out, map.pacmanSpawn);
+        putPoint(out, map.ghostDoor);
+        putPoint(out, map.ghostHome);
+        out.putInt(map.ghostSpawns.length);
+        for (Point p : map.ghostSpawns) putPoint(out, p);
+        out.putInt(map.scatterTargets.length);
+        for (Point p : map.scatterTargets) putPoint(out, p);
+        map.board.writePlanes(out, header);
+
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, out.array());
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void putPoint(ByteBuffer out, Point p) {
+        out.putInt(p.x).putInt(p.y);
+    }
+
+    private static Point getPoint(ByteBuffer in) {
+        return new Point(in.getInt(), in.getInt());
+    }
+
+    private static GameMap readCompiled(String name, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer in = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                if (in.getInt() != MAGIC) throw new IOException(file + " is not a compiled map");
+                int version = in.getInt();
+                if (version != VERSION) throw new IOException(file + ": unsupported map version " + version);
+                int width = in.getInt(), height = in.getInt();
+                Point pacman = getPoint(in), door = getPoint(in), home = getPoint(in);
+                Point[] ghosts = new Point[in.getInt()];
+                for (int i = 0; i < ghosts.length; i++) ghosts[i] = getPoint(in);
+                Point[] scatter = new Point[in.getInt()];
+                for (int i = 0; i < scatter.length; i++) scatter[i] = getPoint(in);
+                in.position((in.position() + 7) & ~7);
+                if (in.remaining() < 8L * Board.planeLongs(width, height)) throw new IOException(file + " is truncated");
+                Board board = Board.readPlanes(width, height, in.asLongBuffer());
+                return new GameMap(name, board, pacman, ghosts, door, home, scatter);
+            } catch (RuntimeException e) {
+                throw new IOException(file + " is corrupt: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path outDir = null;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--out")) outDir = Path.of(args[++i]);
+            else inputs.add(Path.of(args[i]));
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: MapLoader level.txt... [--out DIR]");
+            System.exit(2);
+        }
+        for (Path in : inputs) {
+            GameMap map = load(in);
+            Path dir = outDir != null ? outDir : in.toAbsolutePath().getParent();
+            Path out = dir.resolve(map.name + ".pmap");
+            write(map, out);
+            System.out.printf("%s -> %s (%dx%d, %d ghosts, %d pellets, %d bytes)%n", in, out,
+                    map.width(), map.height(), map.ghostSpawns.length, map.board.pelletsLeft(), Files.size(out));
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.mycompany.pacman;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Seeded generator of Pac-Man style levels, from the classic 68x34 up to
+ * 4096x4096. Corridors run on the odd rows and columns. The maze starts as a
+ * perfect maze and dead ends are then opened up into loops. Some rows and
+ * columns get tunnels that wrap at the edges. A ghost box with a door sits in
+ * the middle, surrounded by a corridor.
+ *
+ * The maze is carved in square regions. Each region has its own generator
+ * derived from the seed and region number, so regions are built in parallel
+ * and the result is the same whatever the thread count:
+ * <ol>
+ * <li>a randomized depth-first maze in every region,
+ * <li>a few openings across each region's right and bottom edges,
+ * <li>dead-end removal, which only touches walls inside the region,
+ * <li>then, serially, the ghost box and tunnels, and pellets row by row.
+ * </ol>
+ * Every open cell is reachable: regions are spanning trees joined along
+ * every shared edge, and the corridor around the box reconnects anything
+ * the box cuts through.
+ *
+ * <pre>
+ * java -cp target/classes com.mycompany.pacman.MazeGenerator 4096 4096 [--seed S] [--loops P]
+ *      [--pellets P] [--out level.pmap] [--check]
+ * </pre>
+ */
+public class MazeGenerator {
+    static final int REGION = 64;   // lattice cells per region side
+
+    public final int width;
+    public final int height;
+    public final long seed;
+    /** Chance that a dead end is opened into a loop; 1 leaves none. */
+    public double loops = 0.8;
+    /** Fraction of open cells that get a pellet. */
+    public double pelletDensity = 1.0;
+    /** Power pellets; -1 picks one per ~2500 cells, at least 4. */
+    public int powerPellets = -1;
+    /** Wrapping tunnels per axis; -1 picks one per ~64 rows or columns. */
+    public int tunnels = -1;
+
+    private byte[] cells;
+    private int latticeW, latticeH, regionsX, regionsY;
+
+    public MazeGenerator(int width, int height, long seed) {
+        if (width < 32 || height < 24 || width > 4096 || height > 4096) {
+            throw new IllegalArgumentException("Maze size must be between 32x24 and 4096x4096: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+    }
+
+    public GameMap generate() {
+        cells = new byte[width * height];
+        Arrays.fill(cells, (byte) Constants.WALL);
+        latticeW = (width - 1) / 2;
+        latticeH = (height - 1) / 2;
+        regionsX = (latticeW + REGION - 1) / REGION;
+        regionsY = (latticeH + REGION - 1) / REGION;
+        int regions = regionsX * regionsY;
+
+        IntStream.range(0, regions).parallel().forEach(this::carveRegion);
+        IntStream.range(0, regions).parallel().forEach(this::joinRegion);
+        IntStream.range(0, regions).parallel().forEach(this::braidRegion);
+
+        GameRandom rand = new GameRandom(GameRandom.mix(seed ^ 0x5EED));
+        int cx = width / 2, cy = height / 2;
+        Point door = carveGhostBox(cx, cy);
+        carveTunnels(rand);
+        placePellets(cx, cy, door);
+        placePowerPellets(rand);
+
+        Board board = Board.fromCells(width, height, cells);
+        cells = null;
+        Point[] ghosts = {
+            new Point(cx - 1, cy), new Point(cx + 1, cy), new Point(cx - 2, cy), new Point(cx + 2, cy)
+        };
+        Point[] scatter = {
+            new Point(0, 0), new Point(width - 1, 0), new Point(width - 1, height - 1), new Point(0, height - 1)
+        };
+        return new GameMap("gen-" + width + "x" + height + "-" + seed, board,
+                new Point(cx, cy + 3), ghosts, door, new Point(cx, cy), scatter);
+    }
+
+    private int cellX(int lx) {
+        return 1 + 2 * lx;
+    }
+
+    private int cellY(int ly) {
+        return 1 + 2 * ly;
+    }
+
+    private void open(int x, int y) {
+        cells[y * width + x] = Constants.EMPTY;
+    }
+
+    private boolean isOpen(int x, int y) {
+        return cells[y * width + x] != Constants.WALL;
+    }
+
+    private GameRandom regionRandom(int region, int phase) {
+        return new GameRandom(GameRandom.mix(seed + region * 0x9E3779B97F4A7C15L + phase));
+    }
+
+    // Randomized depth-first search over the region's lattice cells
+    private void carveRegion(int region) {
+        int x0 = region % regionsX * REGION, y0 = region / regionsX * REGION;
+        int w = Math.min(REGION, latticeW - x0), h = Math.min(REGION, latticeH - y0);
+        GameRandom rand = regionRandom(region, 0);
+        boolean[] seen = new boolean[w * h];
+        int[] stack = new int[w * h];
+        int top = 0;
+        int start = rand.nextInt(w * h);
+        stack[top++] = start;
+        seen[start] = true;
+        open(cellX(x0 + start % w), cellY(y0 + start / w));
+        int[] options = new int[4];
+        while (top > 0) {
+            int c = stack[top - 1];
+            int lx = c % w, ly = c / w;
+            int n = 0;
+            for (int d = 0; d < 4; d++) {
+                int nx = lx + Constants.DELTAS[d][0], ny = ly + Constants.DELTAS[d][1];
+                if (nx >= 0 && ny >= 0 && nx < w && ny < h && !seen[ny * w + nx]) options[n++] = d;
+            }
+            if (n == 0) {
+                top--;
+                continue;
+            }
+            int d = options[rand.nextInt(n)];
+            int nx = lx + Constants.DELTAS[d][0], ny = ly + Constants.DELTAS[d][1];
+            int x = cellX(x0 + lx), y = cellY(y0 + ly);
+            open(x + Constants.DELTAS[d][0], y + Constants.DELTAS[d][1]);
+            open(x + 2 * Constants.DELTAS[d][0], y + 2 * Constants.DELTAS[d][1]);
+            seen[ny * w + nx] = true;
+            stack[top++] = ny * w + nx;
+        }
+    }
+
+    // Openings through the right and bottom edges; each wall belongs to exactly one region
+    private void joinRegion(int region) {
+        int rx = region % regionsX, ry = region / regionsX;
+        int x0 = rx * REGION, y0 = ry * REGION;
+        int w = Math.min(REGION, latticeW - x0), h = Math.min(REGION, latticeH - y0);
+        GameRandom rand = regionRandom(region, 1);
+        if (rx + 1 < regionsX) {
+            int x = cellX(x0 + w - 1) + 1;
+            for (int i = 0, n = 1 + h / 16; i < n; i++) open(x, cellY(y0 + rand.nextInt(h)));
+        }
+        if (ry + 1 < regionsY) {
+            int y = cellY(y0 + h - 1) + 1;
+            for (int i = 0, n = 1 + w / 16; i < n; i++) open(cellX(x0 + rand.nextInt(w)), y);
+        }
+    }
+
+    // Turns dead ends into loops by knocking out a wall to another cell of the same region
+    private void braidRegion(int region) {
+        int x0 = region % regionsX * REGION, y0 = region / regionsX * REGION;
+        int w = Math.min(REGION, latticeW - x0), h = Math.min(REGION, latticeH - y0);
+        GameRandom rand = regionRandom(region, 2);
+        int[] options = new int[4];
+        for (int ly = 0; ly < h; ly++) {
+            for (int lx = 0; lx < w; lx++) {
+                int x = cellX(x0 + lx), y = cellY(y0 + ly);
+                int exits = 0, n = 0;
+                for (int d = 0; d < 4; d++) {
+                    int wx = x + Constants.DELTAS[d][0], wy = y + Constants.DELTAS[d][1];
+                    if (wx <= 0 || wy <= 0 || wx >= width - 1 || wy >= height - 1) continue;
+                    if (isOpen(wx, wy)) {
+                        exits++;
+                        continue;
+                    }
+                    int nx = lx + Constants.DELTAS[d][0], ny = ly + Constants.DELTAS[d][1];
+                    if (nx >= 0 && ny >= 0 && nx < w && ny < h) options[n++] = d;
+                }
+                if (exits != 1 || n == 0 || rand.nextDouble() >= loops) continue;
+                int d = options[rand.nextInt(n)];
+                open(x + Constants.DELTAS[d][0], y + Constants.DELTAS[d][1]);
+            }
+        }
+    }
+
+    // 7x3 box with a door in the middle of its top wall, ringed by a corridor
+    private Point carveGhostBox(int cx, int cy) {
+        for (int y = cy - 3; y <= cy + 3; y++) {
+            for (int x = cx - 5; x <= cx + 5; x++) {
+                boolean ring = y == cy - 3 || y == cy + 3 || x == cx - 5 || x == cx + 5;
+                boolean wall = y == cy - 2 || y == cy + 2 || x == cx - 4 || x == cx + 4;
+                cells[y * width + x] = (byte) (ring ? Constants.EMPTY : wall ? Constants.WALL : Constants.GHOST_BOX);
+            }
+        }
+        open(cx, cy - 2);
+        return new Point(cx, cy - 2);
+    }
+
+    // Tunnels run along corridor rows/columns and open the border at both ends
+    private void carveTunnels(GameRandom rand) {
+        int rows = tunnels >= 0 ? tunnels : Math.max(1, height / 64);
+        for (int i = 0; i < rows; i++) {
+            int y = cellY(rand.nextInt(latticeH));
+            for (int x = 0; x < width && !isOpen(x, y); x++) open(x, y);
+            for (int x = width - 1; x >= 0 && !isOpen(x, y); x--) open(x, y);
+        }
+        int cols = tunnels >= 0 ? tunnels : Math.max(1, width / 64) - 1;
+        for (int i = 0; i < cols; i++) {
+            int x = cellX(rand.nextInt(latticeW));
+            for (int y = 0; y < height && !isOpen(x, y); y++) open(x, y);
+            for (int y = height - 1; y >= 0 && !isOpen(x, y); y--) open(x, y);
+        }
+    }
+
+    private void placePellets(int cx, int cy, Point door) {
+        IntStream.range(0, height).parallel().forEach(y -> {
+            GameRandom rand = new GameRandom(GameRandom.mix(seed ^ (0xBE11E7L + y)));
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                if (cells[i] != Constants.EMPTY) continue;
+                if (Math.abs(x - cx) <= 1 && y == cy + 3) continue;   // keep the spawn clear
+                if (x == door.x && y == door.y) continue;
+                if (rand.nextDouble() < pelletDensity) cells[i] = Constants.PELLET;
+            }
+        });
+    }
+
+    private void placePowerPellets(GameRandom rand) {
+        int count = powerPellets >= 0 ? powerPellets : Math.max(4, width * height / 2500);
+        for (int placed = 0, tries = 0; placed < count && tries < count * 100; tries++) {
+            int i = cellY(rand.nextInt(latticeH)) * width + cellX(rand.nextInt(latticeW));
+            if (cells[i] != Constants.PELLET && cells[i] != Constants.EMPTY) continue;
+            cells[i] = Constants.POWER_PELLET;
+            placed++;
+        }
+    }
+
+    /** Open cells that can't be reached from Pac-Man's spawn (should always be 0). */
+    public static long unreachable(GameMap map) {
+        Board b = map.board;
+        int w = b.width(), h = b.height();
+        long[] seen = new long[(w * h + 63) >>> 6];
+        int[] queue = new int[b.walkableCells()];
+        int head = 0, tail = 0;
+        int start = map.pacmanSpawn.y * w + map.pacmanSpawn.x;
+        queue[tail++] = start;
+        seen[start >>> 6] |= 1L << start;
+        while (head < tail) {
+            int c = queue[head++];
+            int x = c % w, y = c / w;
+            for (int d = 0; d < 4; d++) {
+                int nx = b.wrapX(x + Constants.DELTAS[d][0]), ny = b.wrapY(y + Constants.DELTAS[d][1]);
+                int n = ny * w + nx;
+                if ((seen[n >>> 6] & (1L << n)) != 0 || b.isWall(nx, ny)) continue;
+                seen[n >>> 6] |= 1L << n;
+                queue[tail++] = n;
+            }
+        }
+        return queue.length - tail;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: MazeGenerator WIDTH HEIGHT [--seed S] [--loops P] [--pellets P] [--out FILE] [--check]");
+            System.exit(2);
+        }
+        int width = Integer.parseInt(args[0]), height = Integer.parseInt(args[1]);
+        long seed = 1;
+        String out = null;
+        boolean check = false;
+        Double loops = null, pellets = null;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--loops": loops = Double.parseDouble(args[++i]); break;
+                case "--pellets": pellets = Double.parseDouble(args[++i]); break;
+                case "--out": out = args[++i]; break;
+                case "--check": check = true; break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+        MazeGenerator gen = new MazeGenerator(width, height, seed);
+        if (loops != null) gen.loops = loops;
+        if (pellets != null) gen.pelletDensity = pellets;
+
+        long start = System.nanoTime();
+        GameMap map = gen.generate();
+        double secs = (System.nanoTime() - start) / 1e9;
+        Board b = map.board;
+        System.out.printf("%s: %,d cells, %,d open, %,d pellets, generated in %.2f s on %d cores%n",
+                map.name, (long) b.width() * b.height(), b.walkableCells(), b.pelletsLeft(), secs,
+                Runtime.getRuntime().availableProcessors());
+        if (check) {
+            start = System.nanoTime();
+            long lost = unreachable(map);
+            System.out.printf("Reachability: %,d unreachable open cells (%.2f s)%n", lost, (System.nanoTime() - start) / 1e9);
+        }
+        if (out != null) {
+            MapLoader.write(map, Path.of(out));
+            System.out.println("Wrote " + out);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.mycompany.pacman;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo tree search over forked engines. Every decision restores the
+ * current state into one private engine per tree and grows each tree with
+ * UCT until the time budget or the rollout count runs out. Trees run in
+ * parallel (root parallelisation) and vote with their root visit counts.
+ *
+ * The bot doesn't peek at the engine's RNG: each tree plays against ghosts
+ * driven by a random stream of its own, so the vote averages over several
+ * possible ghost futures. Within a tree, states reached by different move
+ * orders share statistics through a Zobrist-hashed transposition table over
+ * pacman's cell, the ghosts, the eaten pellets and power mode.
+ *
+ * With a rollout count and no time budget a decision only depends on the
+ * game state and the bot's seed, so Simulator runs stay reproducible.
+ */
+public class MctsBot implements Controller {
+    /** Rollouts per tree and decision for "--bot mcts" in Simulator. */
+    public static final int ROLLOUTS = Integer.getInteger("pacman.mctsRollouts", 200);
+
+    static final int MAX_NODES = 1 << 14;
+    static final int MAX_DEPTH = 24;          // ticks down the tree
+    static final int ROLLOUT_TICKS = 32;      // random-walk ticks after the tree
+    static final double EXPLORATION = 0.7;
+
+    private static final AtomicLong TOTAL_ROLLOUTS = new AtomicLong();
+    private static final AtomicLong TOTAL_NANOS = new AtomicLong();
+
+    private final GameRandom rand;
+    private final Tree[] trees;
+    private final long budgetNanos;
+    private final int rolloutsPerTree;
+    private final GameSnapshot root = new GameSnapshot();
+    private final int[] votes = new int[4];
+
+    public long rollouts;                 // all decisions so far
+    public double rolloutsPerSecond;      // over the last decision
+
+    /**
+     * @param threads         trees searched in parallel per decision
+     * @param budgetNanos     time per decision, 0 for none
+     * @param rolloutsPerTree rollouts per tree and decision, 0 for no limit (needs a budget)
+     */
+    public MctsBot(long seed, int threads, long budgetNanos, int rolloutsPerTree) {
+        if (budgetNanos <= 0 && rolloutsPerTree <= 0) {
+            throw new IllegalArgumentException("MctsBot needs a time budget or a rollout count");
+        }
+        this.rand = new GameRandom(seed);
+        this.trees = new Tree[Math.max(1, threads)];
+        this.budgetNanos = budgetNanos;
+        this.rolloutsPerTree = rolloutsPerTree;
+        for (int t = 0; t < trees.length; t++) trees[t] = new Tree();
+    }
+
+    /** Single tree with Simulator's default rollout count. */
+    public MctsBot(long seed) {
+        this(seed, 1, 0, ROLLOUTS);
+    }
+
+    @Override
+    public int nextDirection(GameEngine engine) {
+        return plan(engine, engine.snapshot(root));
+    }
+
+    /**
+     * Best move from {@code state}, a snapshot of an engine playing the same
+     * level as {@code like}. {@code like} is only forked, never modified, so
+     * it may be a private copy held for another thread's engine.
+     */
+    public int plan(GameEngine like, GameSnapshot state) {
+        long start = System.nanoTime();
+        long deadline = budgetNanos > 0 ? start + budgetNanos : 0;
+        long base = rand.nextLong();
+        for (int t = 0; t < trees.length; t++) trees[t].prepare(like);
+        if (trees.length == 1) {
+            trees[0].search(state, GameRandom.nth(base, 1), deadline, rolloutsPerTree);
+        } else {
+            IntStream.range(0, trees.length).parallel().forEach(t ->
+                    trees[t].search(state, GameRandom.nth(base, t + 1), deadline, rolloutsPerTree));
+        }
+
+        Arrays.fill(votes, 0);
+        long done = 0;
+        for (Tree tree : trees) {
+            done += tree.rollouts;
+            for (int a = 0; a < 4; a++) {
+                int child = tree.child[tree.rootNode * 4 + a];
+                if (child >= 0) votes[a] += tree.visits[child];
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        rollouts += done;
+        rolloutsPerSecond = done * 1e9 / Math.max(1, nanos);
+        TOTAL_ROLLOUTS.addAndGet(done);
+        TOTAL_NANOS.addAndGet(nanos);
+
+        int best = -1;
+        for (int a = 0; a < 4; a++) {
+            if (votes[a] > 0 && (best < 0 || votes[a] > votes[best])) best = a;
+        }
+        return best;
+    }
+
+    /** Rollouts per second of decision time, over every MctsBot in this JVM. */
+    public static double totalRolloutsPerSecond() {
+        return TOTAL_ROLLOUTS.get() * 1e9 / Math.max(1, TOTAL_NANOS.get());
+    }
+
+    // Zobrist keys are hashed from the cell rather than stored, so huge levels cost no table
+    static final int PACMAN_KEY = 0, PELLET_KEY = 1, GHOST_KEY = 2;
+
+    static long zobrist(int kind, int cell) {
+        return GameRandom.nth(0x5A0B215AL, 3L * cell + kind);
+    }
+
+    /** One search tree with its own engine; nodes live in parallel arrays, found by state hash. */
+    private static final class Tree implements BoardListener {
+        private static final long POWER_KEY = 0x6A09E667F3BCC909L;
+
+        GameEngine engine;
+        private int cells;
+        private final GameSnapshot root = new GameSnapshot();
+        private final GameRandom rand = new GameRandom(0);
+
+        // Transposition table: open addressing over twice as many slots as nodes
+        private final long[] slotKey = new long[2 * MAX_NODES];
+        private final int[] slotNode = new int[2 * MAX_NODES];
+        final int[] visits = new int[MAX_NODES];
+        private final double[] value = new double[MAX_NODES];
+        final int[] child = new int[4 * MAX_NODES];
+        private int nodes;
+        int rootNode;
+        long rollouts;
+
+        private final int[] path = new int[MAX_DEPTH + 1];
+        private int[] pelletDistance = new int[0];   // BFS steps to the nearest pellet at the root
+        private int[] queue = new int[0];
+        private int farthest;
+        private long pelletHash, rootPelletHash;
+
+        void prepare(GameEngine like) {
+            if (engine == null || engine.level != like.level) {
+                engine = like.fork();
+                engine.addBoardListener(this);
+            }
+            this.cells = engine.map.width() * engine.map.height();
+        }
+
+        void search(GameSnapshot state, long seed, long deadline, int maxRollouts) {
+            // Same state, but ghosts that roll their own dice
+            if (root.state.length != state.state.length) root.state = new int[state.state.length];
+            System.arraycopy(state.state, 0, root.state, 0, state.state.length);
+            root.pellets = state.pellets;
+            root.pelletsLeft = state.pelletsLeft;
+            root.rngState = GameRandom.nth(seed, 1);
+            rand.setState(GameRandom.nth(seed, 2));
+
+            engine.restore(root);
+            rootPelletHash = pelletHash = eatenPelletHash();
+            measurePelletDistances();
+            Arrays.fill(slotNode, -1);
+            nodes = 0;
+            rootNode = node(hash());
+            rollouts = 0;
+            while (maxRollouts <= 0 || rollouts < maxRollouts) {
+                if (deadline != 0 && (rollouts & 15) == 0 && System.nanoTime() - deadline >= 0) break;
+                if (rollouts > 0) engine.restore(root);
+                iterate();
+                rollouts++;
+            }
+        }
+
+        // Select down the tree, add one node, random-walk from there and back the value up
+        private void iterate() {
+            GameEngine e = engine;
+            int startScore = e.score, startLives = e.lives, startTick = e.gameTick, startPellets = e.map.pelletsLeft();
+            int startDistance = pelletDistance[e.pacmanY * e.map.width() + e.pacmanX];
+            int node = rootNode, depth = 0;
+            path[0] = node;
+            while (!e.gameOver && depth < MAX_DEPTH) {
+                int a = select(node);
+                if (a < 0) break;
+                play(a);
+                int next = child[node * 4 + a];
+                boolean added = false;
+                if (next < 0) {
+                    next = node(hash());
+                    if (next < 0) break;    // table full: roll out from here
+                    child[node * 4 + a] = next;
+                    added = visits[next] == 0;
+                }
+                path[++depth] = node = next;
+                if (added) break;
+            }
+
+            int leafTicks = Math.max(1, e.gameTick - startTick);
+            int leafDistance = pelletDistance[e.pacmanY * e.map.width() + e.pacmanX];
+            int dir = e.lastDirection;
+            for (int t = 0; t < ROLLOUT_TICKS && !e.gameOver && e.lives == startLives; t++) {
+                dir = rolloutMove(dir);
+                play(dir);
+            }
+
+            double v;
+            if (e.lives < startLives || (e.gameOver && !e.gameWon)) v = 0;
+            else if (e.gameWon) v = 1;
+            else {
+                // Pellets cleared per tick, a little for points (ghosts), and how fast the
+                // tree's path closed in on pellets the rollouts may not reach
+                int ticks = Math.max(1, e.gameTick - startTick);
+                double cleared = (double) (startPellets - e.map.pelletsLeft()) / ticks;
+                double points = Math.min(1.0, (e.score - startScore) / (10.0 * ticks));
+                double near = 0.5 + 0.5 * Math.max(-1.0, Math.min(1.0, (double) (startDistance - leafDistance) / leafTicks));
+                v = 0.2 + 0.5 * cleared + 0.1 * points + 0.2 * near;
+            }
+            for (int i = 0; i <= depth; i++) {
+                visits[path[i]]++;
+                value[path[i]] += v;
+            }
+        }
+
+        // UCB1 over pacman's open directions; untried ones first, in random order
+        private int select(int node) {
+            int best = -1;
+            double bestScore = -1;
+            int offset = rand.nextInt(4);
+            double logN = Math.log(visits[node] + 1);
+            for (int i = 0; i < 4; i++) {
+                int a = (i + offset) & 3;
+                if (!open(a)) continue;
+                int c = child[node * 4 + a];
+                if (c < 0 || visits[c] == 0) return a;
+                double score = value[c] / visits[c] + EXPLORATION * Math.sqrt(logN / visits[c]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = a;
+                }
+            }
+            return best;
+        }
+
+        // Mostly keep going; turn into a random open direction at junctions and walls
+        private int rolloutMove(int dir) {
+            if (open(dir) && rand.nextInt(4) != 0) return dir;
+            int options = 0, count = 0;
+            for (int a = 0; a < 4; a++) {
+                if (a != (dir ^ 1) && open(a)) options |= a << (2 * count++);
+            }
+            if (count == 0) return dir ^ 1;
+            return (options >>> (2 * rand.nextInt(count))) & 3;
+        }
+
+        private boolean open(int a) {
+            Board map = engine.map;
+            return !map.isWall(map.wrapX(engine.pacmanX + Constants.DELTAS[a][0]),
+                               map.wrapY(engine.pacmanY + Constants.DELTAS[a][1]));
+        }
+
+        private void play(int a) {
+            engine.lastDirection = a;
+            engine.tick(Constants.DELTAS[a][0], Constants.DELTAS[a][1]);
+        }
+
+        // Node for this state hash, added if new; -1 when the table is full
+        private int node(long key) {
+            int mask = slotKey.length - 1;
+            for (int s = (int) (key ^ (key >>> 32)) & mask; ; s = (s + 1) & mask) {
+                int n = slotNode[s];
+                if (n < 0) {
+                    if (nodes == MAX_NODES) return -1;
+                    n = nodes++;
+                    slotKey[s] = key;
+                    slotNode[s] = n;
+                    visits[n] = 0;
+                    value[n] = 0;
+                    Arrays.fill(child, n * 4, n * 4 + 4, -1);
+                    return n;
+                }
+                if (slotKey[s] == key) return n;
+            }
+        }
+
+        private long hash() {
+            GameEngine e = engine;
+            int w = e.map.width();
+            long h = zobrist(PACMAN_KEY, e.pacmanY * w + e.pacmanX) ^ pelletHash;
+            for (int i = 0; i < e.ghostX.length; i++) {
+                long g = zobrist(GHOST_KEY, e.ghostY[i] * w + e.ghostX[i]);
+                h ^= Long.rotateLeft(g, 1 + 4 * (e.ghostType[i] & 3) + e.ghostDir[i]);
+            }
+            return e.powerMode ? h ^ POWER_KEY : h;
+        }
+
+        // Multi-source BFS from every pellet left at the root
+        private void measurePelletDistances() {
+            Board map = engine.map;
+            int w = map.width(), h = map.height();
+            if (pelletDistance.length != cells) {
+                pelletDistance = new int[cells];
+                queue = new int[cells];
+            }
+            Arrays.fill(pelletDistance, -1);
+            int head = 0, tail = 0;
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    if (map.hasPellet(x, y)) {
+                        pelletDistance[y * w + x] = 0;
+                        queue[tail++] = y * w + x;
+                    }
+                }
+            }
+            farthest = 1;
+            while (head < tail) {
+                int p = queue[head++];
+                int x = p % w, y = p / w;
+                for (int d = 0; d < 4; d++) {
+                    int nx = map.wrapX(x + Constants.DELTAS[d][0]);
+                    int ny = map.wrapY(y + Constants.DELTAS[d][1]);
+                    int q = ny * w + nx;
+                    if (pelletDistance[q] >= 0 || map.isWall(nx, ny)) continue;
+                    pelletDistance[q] = pelletDistance[p] + 1;
+                    farthest = Math.max(farthest, pelletDistance[q]);
+                    queue[tail++] = q;
+                }
+            }
+            // Cells no pellet can reach (walls, sealed pockets) count as farthest
+            for (int i = 0; i < cells; i++) if (pelletDistance[i] < 0) pelletDistance[i] = farthest;
+        }
+
+        // Hash of the pellets eaten so far, for the state a search starts from
+        private long eatenPelletHash() {
+            Board now = engine.map, start = engine.originalMap;
+            int w = now.width();
+            long h = 0;
+            for (int y = 0; y < now.height(); y++) {
+                for (int x = 0; x < w; x++) {
+                    if (start.hasPellet(x, y) && !now.hasPellet(x, y)) h ^= zobrist(PELLET_KEY, y * w + x);
+                }
+            }
+            return h;
+        }
+
+        @Override
+        public void cellCleared(int x, int y) {
+            pelletHash ^= zobrist(PELLET_KEY, y * engine.map.width() + x);
+        }
+
+        @Override
+        public void boardReset() {
+            pelletHash = rootPelletHash;   // only ever reset to the search's root
+        }
+    }
+}
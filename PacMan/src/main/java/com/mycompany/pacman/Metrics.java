@@ -0,0 +1,126 @@
+package com.mycompany.pacman;
+
+/**
+ * Per-engine timing histograms and counters. An engine only pays for
+ * instrumentation while a Metrics is attached (GameEngine.metrics != null);
+ * otherwise every probe is a single null check. Single writer: the thread
+ * that ticks the engine.
+ *
+ * -Dpacman.metrics=true attaches one to every new engine, and Simulator
+ * prints the merged totals. Ticks and frames slower than
+ * -Dpacman.slowTickMicros / -Dpacman.slowFrameMs are also emitted as JFR
+ * events, e.g. {@code java -XX:StartFlightRecording=filename=pacman.jfr ...}.
+ */
+public class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("pacman.metrics");
+    static final long SLOW_TICK_NANOS = Long.getLong("pacman.slowTickMicros", 2000) * 1000;
+    static final long SLOW_FRAME_NANOS = Long.getLong("pacman.slowFrameMs", 20) * 1_000_000;
+
+    private static final Metrics TOTAL = new Metrics();
+
+    public final Histogram tick = new Histogram();
+    public final Histogram movePacman = new Histogram();
+    public final Histogram moveGhosts = new Histogram();
+    public final Histogram checkCollisions = new Histogram();
+    public final Histogram updateAnimations = new Histogram();
+    public final Histogram frame = new Histogram();
+
+    public long routeLookups;
+    public long aStarCalls;
+    public long aStarNodes;     // nodes taken off the open list
+    public long findPathCalls;
+    public long findPathNodes;
+    public long plansBuilt;
+    public long plansDeferred;   // ghost-ticks that wanted a new plan over budget
+    public long planOverruns;    // ticks where the plan budget ran out
+    public long slowTicks;
+    public long slowFrames;
+
+    void recordTick(int gameTick, long start, long pacman, long ghosts, long collisions, long end) {
+        tick.record(end - start);
+        movePacman.record(pacman - start);
+        moveGhosts.record(ghosts - pacman);
+        checkCollisions.record(collisions - ghosts);
+        updateAnimations.record(end - collisions);
+        if (end - start < SLOW_TICK_NANOS) return;
+        slowTicks++;
+        SlowTickEvent e = new SlowTickEvent();
+        if (e.shouldCommit()) {
+            e.gameTick = gameTick;
+            e.tickTime = end - start;
+            e.movePacman = pacman - start;
+            e.moveGhosts = ghosts - pacman;
+            e.checkCollisions = collisions - ghosts;
+            e.updateAnimations = end - collisions;
+            e.commit();
+        }
+    }
+
+    void recordFrame(long start, long end, boolean inGame) {
+        frame.record(end - start);
+        if (end - start < SLOW_FRAME_NANOS) return;
+        slowFrames++;
+        SlowFrameEvent e = new SlowFrameEvent();
+        if (e.shouldCommit()) {
+            e.frameTime = end - start;
+            e.inGame = inGame;
+            e.commit();
+        }
+    }
+
+    public void add(Metrics other) {
+        tick.add(other.tick);
+        movePacman.add(other.movePacman);
+        moveGhosts.add(other.moveGhosts);
+        checkCollisions.add(other.checkCollisions);
+        updateAnimations.add(other.updateAnimations);
+        frame.add(other.frame);
+        routeLookups += other.routeLookups;
+        aStarCalls += other.aStarCalls;
+        aStarNodes += other.aStarNodes;
+        findPathCalls += other.findPathCalls;
+        findPathNodes += other.findPathNodes;
+        plansBuilt += other.plansBuilt;
+        plansDeferred += other.plansDeferred;
+        planOverruns += other.planOverruns;
+        slowTicks += other.slowTicks;
+        slowFrames += other.slowFrames;
+    }
+
+    /** Folds a finished engine's numbers into the process-wide totals. */
+    public static void merge(Metrics m) {
+        synchronized (TOTAL) {
+            TOTAL.add(m);
+        }
+    }
+
+    public static Metrics total() {
+        synchronized (TOTAL) {
+            Metrics copy = new Metrics();
+            copy.add(TOTAL);
+            return copy;
+        }
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-18s %10s %9s %9s %9s %9s%n", "phase (ns)", "count", "mean", "p50", "p99", "max"));
+        line(sb, "tick", tick);
+        line(sb, "  movePacman", movePacman);
+        line(sb, "  moveGhosts", moveGhosts);
+        line(sb, "  checkCollisions", checkCollisions);
+        line(sb, "  updateAnimations", updateAnimations);
+        if (frame.count() > 0) line(sb, "frame", frame);
+        sb.append(String.format("route lookups %d, aStar %d calls / %d nodes, findPath %d calls / %d nodes%n",
+                routeLookups, aStarCalls, aStarNodes, findPathCalls, findPathNodes));
+        sb.append(String.format("plans %d built, %d deferred, budget ran out on %d ticks%n",
+                plansBuilt, plansDeferred, planOverruns));
+        sb.append(String.format("slow ticks %d, slow frames %d%n", slowTicks, slowFrames));
+        return sb.toString();
+    }
+
+    private static void line(StringBuilder sb, String name, Histogram h) {
+        sb.append(String.format("%-18s %10d %9.0f %9d %9d %9d%n", name, h.count(), h.mean(),
+                h.percentile(50), h.percentile(99), h.max()));
+    }
+}
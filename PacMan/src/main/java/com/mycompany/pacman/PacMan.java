@@ -1,5 +1,7 @@
 package com.mycompany.pacman;
 
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import javax.swing.JFrame;
 
 public class PacMan {
@@ -12,5 +14,13 @@ public class PacMan {
         f.pack();   
         f.setLocationRelativeTo(null);
         f.setVisible(true);
+        // Listeners run before EXIT_ON_CLOSE exits, so logs and scores get flushed
+        f.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                gamePanel.stop();
+            }
+        });
+        gamePanel.start();
     }
 }
@@ -0,0 +1,107 @@
+package com.mycompany.pacman;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Training environment over one GameEngine: reset(seed), then step(action)
+ * once per tick, which returns the reward and sets done. After every reset
+ * and step the observation is written into a caller-supplied ByteBuffer
+ * (normally a direct one shared with native code) at a fixed offset, with
+ * absolute puts in the buffer's byte order. Nothing is allocated per step,
+ * including the automatic reset.
+ *
+ * Observation layout, observationBytes(level) bytes:
+ * <pre>
+ *   int[8]     pacmanX, pacmanY, lastDirection, powerTimer (0 when off), lives, score, gameTick, pelletsLeft
+ *   long[4][P] walls, pellets, power pellets, ghost box as bit planes: P = height * ceil(width / 64),
+ *              cell (x,y) is bit x % 64 of long y * ceil(width / 64) + x / 64
+ *   int[G][4]  x, y, type, direction of each ghost
+ * </pre>
+ * Actions are the Constants directions, or -1 to keep going. The reward is the
+ * score gained by the step; done is set when the game is over or maxSteps
+ * steps have been taken since the reset.
+ */
+public class PacmanEnv {
+    static final int HEADER_INTS = 8;
+
+    public final GameEngine engine;
+    public boolean done;
+    public int steps;
+    public int maxSteps = 20_000;
+    /** Start a new game straight after a step that ends one; its first observation replaces the last one. */
+    public boolean autoReset;
+
+    private final ByteBuffer observation;
+    private final int offset;
+    private final GameRandom episodes = new GameRandom(0);
+    private int desiredDirX, desiredDirY;
+
+    public PacmanEnv(GameMap level, ByteBuffer observation, int offset) {
+        if (offset < 0 || offset + observationBytes(level) > observation.capacity()) {
+            throw new IllegalArgumentException("Observation needs " + observationBytes(level)
+                    + " bytes at offset " + offset + ", buffer has " + observation.capacity());
+        }
+        this.engine = new GameEngine(level, 0);
+        this.observation = observation;
+        this.offset = offset;
+    }
+
+    public static int observationBytes(GameMap level) {
+        return 4 * HEADER_INTS + 8 * Board.planeLongs(level.board.width(), level.board.height())
+                + 16 * level.ghostSpawns.length;
+    }
+
+    /** Starts a new game; later automatic resets draw their seeds from this one. */
+    public void reset(long seed) {
+        episodes.setState(seed);
+        newEpisode();
+    }
+
+    public float step(int action) {
+        if (action >= 0) {
+            desiredDirX = Constants.DELTAS[action][0];
+            desiredDirY = Constants.DELTAS[action][1];
+            engine.lastDirection = action;
+        }
+        int score = engine.score;
+        engine.tick(desiredDirX, desiredDirY);
+        steps++;
+        float reward = engine.score - score;
+        done = engine.gameOver || steps >= maxSteps;
+        if (done && autoReset) {
+            newEpisode();
+            done = true;   // still report the end of the finished game
+        } else {
+            writeObservation();
+        }
+        return reward;
+    }
+
+    private void newEpisode() {
+        engine.reset(episodes.nextLong());
+        desiredDirX = desiredDirY = 0;
+        steps = 0;
+        done = false;
+        writeObservation();
+    }
+
+    private void writeObservation() {
+        ByteBuffer out = observation;
+        int o = offset;
+        out.putInt(o, engine.pacmanX);
+        out.putInt(o + 4, engine.pacmanY);
+        out.putInt(o + 8, engine.lastDirection);
+        out.putInt(o + 12, engine.powerTicksLeft());
+        out.putInt(o + 16, engine.lives);
+        out.putInt(o + 20, engine.score);
+        out.putInt(o + 24, engine.gameTick);
+        out.putInt(o + 28, engine.map.pelletsLeft());
+        o = engine.map.writePlanes(out, o + 4 * HEADER_INTS);
+        for (int i = 0; i < engine.ghostX.length; i++, o += 16) {
+            out.putInt(o, engine.ghostX[i]);
+            out.putInt(o + 4, engine.ghostY[i]);
+            out.putInt(o + 8, engine.ghostType[i]);
+            out.putInt(o + 12, engine.ghostDir[i]);
+        }
+    }
+}
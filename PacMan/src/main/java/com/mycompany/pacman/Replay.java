@@ -0,0 +1,144 @@
+package com.mycompany.pacman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A recorded game: the engine seed plus the desired direction of every tick.
+ * Inputs are run-length encoded as varint((run << 3) | (direction + 1)), so a
+ * typical game costs a byte or two per direction change.
+ *
+ * The header also carries the engine settings that change how a game plays
+ * out, so it replays the same under any -D flags.
+ *
+ * File layout: magic, version, seed, tick count, final score, level name
+ * (length-prefixed UTF-8, since version 2), plan budget (since version 3),
+ * ghost release delay (since version 4), pathfinder kind (length-prefixed
+ * UTF-8, since version 5), input length, inputs.
+ */
+public final class Replay {
+    private static final int MAGIC = 0x504D5250; // "PMRP"
+    private static final int VERSION = 5;
+
+    public final String level;
+    public final long seed;
+    public final int ticks;
+    public final int finalScore;
+    public final int planBudget;
+    public final int releaseDelay;
+    public final String pathfinder;   // as GhostPathfinder.kindOf() names it
+    final byte[] inputs;
+
+    Replay(String level, long seed, int ticks, int finalScore, int planBudget, int releaseDelay, String pathfinder,
+           byte[] inputs) {
+        this.level = level;
+        this.seed = seed;
+        this.ticks = ticks;
+        this.finalScore = finalScore;
+        this.planBudget = planBudget;
+        this.releaseDelay = releaseDelay;
+        this.pathfinder = pathfinder;
+        this.inputs = inputs;
+    }
+
+    public int inputBytes() {
+        return inputs.length;
+    }
+
+    public int fileSize() {
+        return 4 + 4 + 8 + 4 + 4 + 2 + utf8(level).length + 4 + 4 + 2 + utf8(pathfinder).length
+                + 4 + inputs.length;
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] b = new byte[in.getShort() & 0xFFFF];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    public void write(Path file) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(fileSize());
+        out.putInt(MAGIC).putInt(VERSION).putLong(seed).putInt(ticks).putInt(finalScore);
+        byte[] name = utf8(level);
+        out.putShort((short) name.length).put(name);
+        out.putInt(planBudget).putInt(releaseDelay);
+        byte[] kind = utf8(pathfinder);
+        out.putShort((short) kind.length).put(kind);
+        out.putInt(inputs.length).put(inputs);
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Files.write(file, out.array());
+    }
+
+    public static Replay read(Path file) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (in.getInt() != MAGIC) throw new IOException(file + " is not a replay");
+        int version = in.getInt();
+        if (version < 1 || version > VERSION) throw new IOException("Unsupported replay version " + version);
+        long seed = in.getLong();
+        int ticks = in.getInt();
+        int finalScore = in.getInt();
+        String level = version >= 2 ? getString(in) : "classic";
+        // Older files were recorded without these settings, so they play with this JVM's
+        int planBudget = version >= 3 ? in.getInt() : GameEngine.PLAN_BUDGET;
+        int releaseDelay = version >= 4 ? in.getInt() : GameEngine.RELEASE_DELAY;
+        String pathfinder = version >= 5 ? getString(in) : GhostPathfinder.KIND;
+        byte[] inputs = new byte[in.getInt()];
+        in.get(inputs);
+        return new Replay(level, seed, ticks, finalScore, planBudget, releaseDelay, pathfinder, inputs);
+    }
+
+    /** Collects one desired direction (-1 for none) per tick. */
+    public static final class Recorder {
+        private final String level;
+        private final long seed;
+        private final int planBudget;
+        private final int releaseDelay;
+        private final String pathfinder;
+        private byte[] buf = new byte[64];
+        private int len;
+        private int ticks;
+        private int dir = -1;
+        private int run;
+
+        /** Records the game {@code engine} has just started (constructed or reset). */
+        public Recorder(GameEngine engine) {
+            this.level = engine.level.name;
+            this.seed = engine.seed();
+            this.planBudget = engine.planBudget;
+            this.releaseDelay = engine.releaseDelay;
+            this.pathfinder = GhostPathfinder.kindOf(engine.pathfinder);
+        }
+
+        public void record(int desiredDirection) {
+            if (desiredDirection != dir && run > 0) flush();
+            dir = desiredDirection;
+            run++;
+            ticks++;
+        }
+
+        public int ticks() {
+            return ticks;
+        }
+
+        private void flush() {
+            if (len + 5 > buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+            len = Varint.put(buf, len, (run << 3) | (dir + 1));
+            run = 0;
+        }
+
+        public Replay finish(int finalScore) {
+            if (run > 0) flush();
+            return new Replay(level, seed, ticks, finalScore, planBudget, releaseDelay, pathfinder,
+                    Arrays.copyOf(buf, len));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.mycompany.pacman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Plays a Replay headlessly at full speed. Opening a replay plays it through
+ * once, keeping a snapshot every KEYFRAME_INTERVAL ticks, so any seek
+ * restores the nearest keyframe at or before the target and only simulates
+ * the remainder: at most KEYFRAME_INTERVAL - 1 ticks, however long the game.
+ *
+ * <pre>
+ * java -cp target/classes com.mycompany.pacman.ReplayPlayer game.pmr [--seek TICK]...
+ * </pre>
+ * Levels other than the classic one are looked up in -Dpacman.levels.
+ */
+public class ReplayPlayer {
+    public static final int KEYFRAME_INTERVAL = 256;
+
+    private final Replay replay;
+    private final GameEngine engine;
+    private final ByteBuffer in;
+    private int tick;
+    private int dir = -1;
+    private int runLeft;
+
+    // Keyframe k holds the state before tick k * KEYFRAME_INTERVAL plus the input decoder position
+    private final GameSnapshot[] keyframes;
+    private final int[] keyframePos;
+    private final int[] keyframeRunLeft;
+    private final int[] keyframeDir;
+
+    public ReplayPlayer(Replay replay) throws IOException {
+        this(replay, findLevel(replay.level));
+    }
+
+    public ReplayPlayer(Replay replay, GameMap level) {
+        this.replay = replay;
+        this.engine = new GameEngine(level, replay.seed);
+        engine.planBudget = replay.planBudget;
+        engine.releaseDelay = replay.releaseDelay;
+        if (!replay.pathfinder.equals(GhostPathfinder.kindOf(engine.pathfinder))) {
+            engine.pathfinder = GhostPathfinder.forMap(replay.pathfinder, level.board);
+        }
+        this.in = ByteBuffer.wrap(replay.inputs);
+        int n = replay.ticks / KEYFRAME_INTERVAL + 1;
+        keyframes = new GameSnapshot[n];
+        keyframePos = new int[n];
+        keyframeRunLeft = new int[n];
+        keyframeDir = new int[n];
+        playToEnd();
+        restore(0);
+    }
+
+    static GameMap findLevel(String name) throws IOException {
+        int at = name.lastIndexOf('@');
+        if (at > 0) {
+            try {
+                return findLevel(name.substring(0, at)).withGhosts(Integer.parseInt(name.substring(at + 1)));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Bad level name " + name + ": " + e.getMessage());
+            }
+        }
+        if (name.equals(GameMap.classic().name)) return GameMap.classic();
+        String dir = System.getProperty("pacman.levels");
+        if (dir == null) throw new IOException("Replay is on level " + name + "; set -Dpacman.levels to its directory");
+        return new LevelLibrary(Path.of(dir)).get(name);
+    }
+
+    public GameEngine engine() {
+        return engine;
+    }
+
+    /** Number of ticks played so far. */
+    public int tick() {
+        return tick;
+    }
+
+    public Replay replay() {
+        return replay;
+    }
+
+    /** Plays one tick; false once the recording is exhausted. */
+    public boolean step() {
+        if (tick % KEYFRAME_INTERVAL == 0 && keyframes[tick / KEYFRAME_INTERVAL] == null) {
+            int k = tick / KEYFRAME_INTERVAL;
+            keyframes[k] = engine.snapshot();
+            keyframePos[k] = in.position();
+            keyframeRunLeft[k] = runLeft;
+            keyframeDir[k] = dir;
+        }
+        if (tick >= replay.ticks) return false;
+        if (runLeft == 0) {
+            int v = Varint.get(in);
+            int d = (v & 7) - 1;
+            if (d != dir && d >= 0) engine.lastDirection = d;
+            dir = d;
+            runLeft = v >>> 3;
+        }
+        runLeft--;
+        engine.tick(dir < 0 ? 0 : Constants.DELTAS[dir][0], dir < 0 ? 0 : Constants.DELTAS[dir][1]);
+        tick++;
+        return true;
+    }
+
+    public void playToEnd() {
+        while (step()) { }
+    }
+
+    /** Moves to the state after {@code target} ticks, from the closest keyframe. */
+    public void seek(int target) {
+        target = Math.max(0, Math.min(target, replay.ticks));
+        int k = target / KEYFRAME_INTERVAL;
+        if (target < tick || k * KEYFRAME_INTERVAL > tick) restore(k);
+        while (tick < target) step();
+    }
+
+    private void restore(int k) {
+        engine.restore(keyframes[k]);
+        in.position(keyframePos[k]);
+        runLeft = keyframeRunLeft[k];
+        dir = keyframeDir[k];
+        tick = k * KEYFRAME_INTERVAL;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: ReplayPlayer <file> [--seek TICK]...");
+            System.exit(2);
+        }
+        Replay replay = Replay.read(Path.of(args[0]));
+        double seconds = replay.ticks * GamePanel.TICK_NANOS / 1e9;
+        System.out.printf("%s: level %s, seed %d, %d ticks (%.0f s of play), %d bytes (%.2f bytes/s)%n",
+                args[0], replay.level, replay.seed, replay.ticks, seconds, replay.fileSize(),
+                replay.fileSize() / Math.max(1, seconds));
+
+        long start = System.nanoTime();
+        ReplayPlayer player = new ReplayPlayer(replay);
+        long nanos = System.nanoTime() - start;
+        GameEngine e = player.engine();
+        player.seek(replay.ticks);
+        System.out.printf("Indexed in %.1f ms: score %d (recorded %d) %s%n", nanos / 1e6, e.score, replay.finalScore,
+                e.score == replay.finalScore ? "OK" : "MISMATCH");
+
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].equals("--seek") || i + 1 >= args.length) continue;
+            int target = Integer.parseInt(args[++i]);
+            start = System.nanoTime();
+            player.seek(target);
+            System.out.printf("Seek to %d: %.3f ms, score %d, pacman (%d,%d)%n", player.tick(),
+                    (System.nanoTime() - start) / 1e6, e.score, e.pacmanX, e.pacmanY);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.mycompany.pacman;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * All-pairs next-hop table for a maze. Every walkable cell gets an id and for
+ * each (source, target) pair the first direction of a shortest path is packed
+ * into 2 bits, so a lookup is a couple of array reads and never allocates.
+ */
+public class RoutingTable implements GhostPathfinder {
+    // Above this many walkable cells the n*n table gets too big (8192 cells = 16 MB)
+    public static final int MAX_CELLS = 8192;
+    // Tables kept for mazes no longer being played; engines keep their own alive regardless
+    static final int CACHED_MAZES = 4;
+
+    private static final Map<Key, RoutingTable> CACHE = lruCache(CACHED_MAZES);
+
+    private final int width;
+    private final int height;
+    private final int[] cellId;     // y*width+x -> walkable id, -1 for walls
+    private final int[] component;  // walkable id -> connected component
+    private final long[] hops;      // 2 bits per (source, target) pair
+    private final int cells;
+
+    private RoutingTable(Board map, int cells) {
+        this.height = map.height();
+        this.width = map.width();
+        this.cells = cells;
+        this.cellId = new int[width * height];
+        int id = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                cellId[y * width + x] = !map.isWall(x, y) ? id++ : -1;
+            }
+        }
+        int[] cellPos = new int[cells];
+        for (int p = 0; p < cellId.length; p++) {
+            if (cellId[p] >= 0) cellPos[cellId[p]] = p;
+        }
+        this.component = new int[cells];
+        Arrays.fill(component, -1);
+        this.hops = new long[(int) (((long) cells * cells * 2 + 63) >>> 6)];
+        build(cellPos);
+    }
+
+    /** Returns the shared table for the walls of {@code map}, or null if the maze is too big. */
+    public static RoutingTable forMap(Board map) {
+        int cells = map.walkableCells();
+        if (cells == 0 || cells > MAX_CELLS) return null;
+        return CACHE.computeIfAbsent(new Key(map), k -> new RoutingTable(map, cells));
+    }
+
+    // One BFS per target; a cell discovered from its neighbour u steps towards u
+    private void build(int[] cellPos) {
+        int[] queue = new int[cells];
+        boolean[] seen = new boolean[cells];
+        int components = 0;
+        for (int t = 0; t < cells; t++) {
+            Arrays.fill(seen, false);
+            boolean fresh = component[t] < 0;
+            if (fresh) component[t] = components++;
+            int head = 0, tail = 0;
+            queue[tail++] = t;
+            seen[t] = true;
+            while (head < tail) {
+                int u = queue[head++];
+                int ux = cellPos[u] % width, uy = cellPos[u] / width;
+                for (int d = 0; d < 4; d++) {
+                    int nx = (ux + Constants.DELTAS[d][0] + width) % width;
+                    int ny = (uy + Constants.DELTAS[d][1] + height) % height;
+                    int v = cellId[ny * width + nx];
+                    if (v < 0 || seen[v]) continue;
+                    seen[v] = true;
+                    if (fresh) component[v] = component[t];
+                    set(v, t, opposite(d));
+                    queue[tail++] = v;
+                }
+            }
+        }
+    }
+
+    private void set(int src, int tgt, int dir) {
+        long idx = (long) src * cells + tgt;
+        int word = (int) (idx >>> 5);
+        int shift = (int) (idx & 31) << 1;
+        hops[word] = (hops[word] & ~(3L << shift)) | ((long) dir << shift);
+    }
+
+    @Override
+    public int nextDirection(int sx, int sy, int tx, int ty) {
+        int src = cellId[sy * width + sx];
+        int tgt = cellId[ty * width + tx];
+        if (src < 0 || tgt < 0 || src == tgt || component[src] != component[tgt]) return -1;
+        long idx = (long) src * cells + tgt;
+        return (int) (hops[(int) (idx >>> 5)] >>> ((idx & 31) << 1)) & 3;
+    }
+
+    public int cellCount() {
+        return cells;
+    }
+
+    private static int opposite(int dir) {
+        return dir ^ 1; // RIGHT<->LEFT, UP<->DOWN
+    }
+
+    /**
+     * A synchronized map that drops its least recently used entry beyond
+     * {@code capacity}, so levels played one after another (generated,
+     * edited, hot-swapped) don't pile up. Iterate it inside synchronized (map).
+     */
+    static <V> Map<Key, V> lruCache(int capacity) {
+        return Collections.synchronizedMap(new LinkedHashMap<Key, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    // Tables only depend on where the walls are
+    static final class Key {
+        final int width, height;
+        final long[] walls;
+        final int hash;
+
+        Key(Board map) {
+            height = map.height();
+            width = map.width();
+            walls = map.wallPlane().clone();
+            hash = 31 * (31 * width + height) + Arrays.hashCode(walls);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return width == k.width && height == k.height && Arrays.equals(walls, k.walls);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.mycompany.pacman;
+
+import java.util.concurrent.locks.LockSupport;
+
+/** Fake remote player for load tests: posts a random direction every few ticks until interrupted. */
+public class ScriptedClient implements Runnable {
+    private final CommandQueue out;
+    private final GameRandom rand;
+    private final long tickNanos;
+
+    public ScriptedClient(CommandQueue out, long seed, long tickNanos) {
+        this.out = out;
+        this.rand = new GameRandom(seed);
+        this.tickNanos = tickNanos;
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            out.offer(rand.nextInt(4));
+            LockSupport.parkNanos(tickNanos * (1 + rand.nextInt(20)));
+        }
+    }
+}
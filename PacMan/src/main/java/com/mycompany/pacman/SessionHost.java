@@ -0,0 +1,161 @@
+package com.mycompany.pacman;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs many headless GameSessions, each on its own virtual thread that sleeps
+ * until its next tick deadline. Idle sessions cost a parked virtual thread, so
+ * tens of thousands fit on a handful of carrier threads.
+ *
+ * <pre>
+ * java -cp target/classes com.mycompany.pacman.SessionHost --sessions 10000 --seconds 20
+ * </pre>
+ * starts that many sessions, each with a scripted client pressing random keys,
+ * and prints tick latency and an estimate of sessions per core.
+ */
+public class SessionHost {
+    private final long tickNanos;
+    private final SessionListener listener;
+    private final List<GameSession> sessions = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running = true;
+    private HighScoreStore scores;
+
+    public SessionHost(long tickNanos, SessionListener listener) {
+        this.tickNanos = tickNanos;
+        this.listener = listener;
+    }
+
+    public synchronized GameSession open(long seed) {
+        GameSession session = new GameSession(sessions.size(), seed);
+        session.scores = scores;
+        sessions.add(session);
+        // Spread the first deadlines over one period so sessions don't all wake at once
+        long first = System.nanoTime() + (long) (session.id * 0.618034 % 1.0 * tickNanos);
+        threads.add(Thread.ofVirtual().name("session-" + session.id).start(() -> run(session, first)));
+        return session;
+    }
+
+    private void run(GameSession session, long next) {
+        while (running) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            session.lateness.record(now - next);
+            session.tick();
+            session.tickNanos.record(System.nanoTime() - now);
+            if (listener != null) listener.onTick(session, session.engine);
+            next += tickNanos;
+            // Hopelessly behind: skip the missed ticks rather than bursting through them
+            if (System.nanoTime() - next > 5 * tickNanos) next = System.nanoTime() + tickNanos;
+        }
+    }
+
+    /** Records every finished game of sessions opened from now on. */
+    public synchronized void recordScores(HighScoreStore store) {
+        scores = store;
+    }
+
+    public synchronized List<GameSession> sessions() {
+        return new ArrayList<>(sessions);
+    }
+
+    /** Stops every session and waits for their threads to finish the current tick. */
+    public synchronized void shutdown() throws InterruptedException {
+        running = false;
+        for (Thread t : threads) t.join();
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int count = 1000;
+        int seconds = 10;
+        long tickMs = 100;
+        long seed = 1;
+        String scoresFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sessions": count = Integer.parseInt(args[++i]); break;
+                case "--seconds": seconds = Integer.parseInt(args[++i]); break;
+                case "--tick-ms": tickMs = Long.parseLong(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--scores": scoresFile = args[++i]; break;
+                default:
+                    System.err.println("Usage: SessionHost [--sessions N] [--seconds S] [--tick-ms T] [--seed S] [--scores FILE]");
+                    System.exit(2);
+            }
+        }
+        if (count < 1) {
+            System.err.println("--sessions must be at least 1");
+            System.exit(2);
+        }
+        if (seconds < 1) {
+            System.err.println("--seconds must be at least 1");
+            System.exit(2);
+        }
+        if (tickMs < 1) {
+            System.err.println("--tick-ms must be at least 1");
+            System.exit(2);
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        long tickNanos = tickMs * 1_000_000L;
+        SessionHost host = new SessionHost(tickNanos, null);
+        HighScoreStore scores = scoresFile != null ? HighScoreStore.open(Path.of(scoresFile)) : null;
+        host.recordScores(scores);
+        GameRandom seeds = new GameRandom(seed);
+        long cpuStart = cpuNanos();
+        long start = System.nanoTime();
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            GameSession s = host.open(seeds.nextLong());
+            clients.add(Thread.ofVirtual().start(new ScriptedClient(s.input, seeds.nextLong(), tickNanos)));
+        }
+        Thread.sleep(seconds * 1000L);
+        host.shutdown();
+        for (Thread t : clients) t.interrupt();
+        if (scores != null) scores.close();
+        double wall = (System.nanoTime() - start) / 1e9;
+        double cpu = (cpuNanos() - cpuStart) / 1e9;
+
+        Histogram lateness = new Histogram(), cost = new Histogram();
+        long games = 0;
+        GameSession worst = null;
+        for (GameSession s : host.sessions()) {
+            lateness.add(s.tickLatency());
+            cost.add(s.tickCost());
+            games += s.gamesPlayed();
+            if (worst == null || s.tickLatency().percentile(99) > worst.tickLatency().percentile(99)) worst = s;
+        }
+        double expected = count * wall * 1e9 / tickNanos;
+        System.out.printf("%d sessions, %d ms ticks, %d cores, %.1f s%n", count, tickMs, cores, wall);
+        System.out.printf("Ticks:     %,d (%.1f%% of schedule), %,.0f ticks/s, %d games finished%n",
+                cost.count(), 100.0 * cost.count() / expected, cost.count() / wall, games);
+        System.out.printf("Lateness:  p50 %.3f ms, p99 %.3f ms, max %.3f ms (worst session %d: p99 %.3f ms)%n",
+                lateness.percentile(50) / 1e6, lateness.percentile(99) / 1e6, lateness.max() / 1e6,
+                worst.id, worst.tickLatency().percentile(99) / 1e6);
+        if (scores != null) {
+            System.out.printf("Scores:    %,d games in %s, best %s%n", scores.size(), scoresFile,
+                    scores.top(1).isEmpty() ? "-" : scores.top(1).get(0).score());
+        }
+        System.out.printf("Tick cost: p50 %.1f us, p99 %.1f us, max %.1f us, mean %.1f us%n",
+                cost.percentile(50) / 1e3, cost.percentile(99) / 1e3, cost.max() / 1e3, cost.mean() / 1e3);
+        System.out.printf("Capacity:  ~%,.0f sessions per core at %d ms ticks by mean tick cost%n",
+                tickNanos / Math.max(1.0, cost.mean()), tickMs);
+        if (cpu > 0) {
+            // Includes scheduling and the scripted clients, so this is the conservative number
+            System.out.printf("CPU:       %.0f%% of %d cores, ~%,.0f sessions per fully used core%n",
+                    100 * cpu / (wall * cores), cores, count / (cpu / wall));
+        }
+    }
+
+    private static long cpuNanos() {
+        java.lang.management.OperatingSystemMXBean os = java.lang.management.ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean sun) return sun.getProcessCpuTime();
+        return 0;
+    }
+}
@@ -0,0 +1,6 @@
+package com.mycompany.pacman;
+
+/** Receives each session's state right after it ticks, on that session's thread. */
+public interface SessionListener {
+    void onTick(GameSession session, GameEngine engine);
+}
@@ -0,0 +1,266 @@
+package com.mycompany.pacman;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongFunction;
+
+/**
+ * Headless runner that plays many independent games on a work-stealing pool.
+ * Every game gets its own seed split from the master seed, so a run is fully
+ * reproducible: same seed, same bot, same games.
+ *
+ * <pre>
+ * java -cp target/classes com.mycompany.pacman.Simulator --games 10000 --seed 42 --bot greedy
+ * </pre>
+ *
+ * With --check-alloc it instead plays 10,000 ticks on one engine after a
+ * warm-up and fails unless the ticks allocated nothing. --events FILE writes
+ * the events of game 0 as CSV (see EventLog).
+ */
+public class Simulator {
+    public static final int WON = 0;
+    public static final int LOST = 1;
+    public static final int CAPPED = 2;
+
+    public record Result(long seed, int outcome, int ticks, int score, int lives) {}
+
+    /** Plays one game to the end or until {@code maxTicks}. */
+    public static Result play(long seed, LongFunction<Controller> bots, int maxTicks) {
+        return play(GameMap.classic(), seed, bots, maxTicks, null);
+    }
+
+    /** Same as above on {@code level}; returns the game as a Replay when {@code replay} is a non-null one-element array. */
+    public static Result play(GameMap level, long seed, LongFunction<Controller> bots, int maxTicks, Replay[] replay) {
+        return play(level, seed, bots, maxTicks, replay, null);
+    }
+
+    /** Same again, publishing the game's events to {@code events} when it isn't null. */
+    public static Result play(GameMap level, long seed, LongFunction<Controller> bots, int maxTicks, Replay[] replay,
+                              GameEvents events) {
+        GameRandom seeds = new GameRandom(seed);
+        GameEngine engine = new GameEngine(level, seeds.nextLong());
+        engine.events = events;
+        Controller controller = bots.apply(seeds.nextLong());
+        Replay.Recorder recorder = replay != null ? new Replay.Recorder(engine) : null;
+        int desiredDirX = 0, desiredDirY = 0, desiredDir = -1;
+        int ticks = 0;
+        while (!engine.gameOver && ticks < maxTicks) {
+            int d = controller.nextDirection(engine);
+            if (d >= 0) {
+                desiredDirX = Constants.DELTAS[d][0];
+                desiredDirY = Constants.DELTAS[d][1];
+                desiredDir = d;
+                engine.lastDirection = d;
+            }
+            if (recorder != null) recorder.record(desiredDir);
+            engine.tick(desiredDirX, desiredDirY);
+            ticks++;
+        }
+        if (recorder != null) replay[0] = recorder.finish(engine.score);
+        if (engine.metrics != null) Metrics.merge(engine.metrics);
+        int outcome = !engine.gameOver ? CAPPED : engine.gameWon ? WON : LOST;
+        return new Result(seed, outcome, ticks, engine.score, engine.lives);
+    }
+
+    /**
+     * Bytes allocated by the calling thread over {@code ticks} ticks of steady
+     * play, measured after a warm-up of the same length; finished games restart
+     * with a new seed. Should be 0. Returns -1 where the JVM can't measure it.
+     * Events are published to a ring drained by another thread meanwhile.
+     */
+    public static long allocatedBytes(GameMap level, long seed, LongFunction<Controller> bots, int ticks) {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)) return -1;
+        GameRandom seeds = new GameRandom(seed);
+        GameEngine engine = new GameEngine(level, seeds.nextLong());
+        Controller controller = bots.apply(seeds.nextLong());
+        engine.events = new GameEvents(1 << 10);
+        GameEvents.Consumer drain = engine.events.start("event-drain", (type, tick, x, y, value, score) -> { });
+        try {
+            playTicks(engine, controller, seeds, ticks);
+            long before = threads.getCurrentThreadAllocatedBytes();
+            playTicks(engine, controller, seeds, ticks);
+            return threads.getCurrentThreadAllocatedBytes() - before;
+        } finally {
+            drain.close();
+        }
+    }
+
+    private static void playTicks(GameEngine engine, Controller controller, GameRandom seeds, int ticks) {
+        int desiredDirX = 0, desiredDirY = 0;
+        for (int i = 0; i < ticks; i++) {
+            if (engine.gameOver) engine.reset(seeds.nextLong());
+            int d = controller.nextDirection(engine);
+            if (d >= 0) {
+                desiredDirX = Constants.DELTAS[d][0];
+                desiredDirY = Constants.DELTAS[d][1];
+                engine.lastDirection = d;
+            }
+            engine.tick(desiredDirX, desiredDirY);
+        }
+    }
+
+    public static LongFunction<Controller> bot(String name) {
+        switch (name) {
+            case "greedy": return GreedyBot::new;
+            case "random": return Controller::random;
+            case "idle": return s -> Controller.scripted();
+            case "mcts": return MctsBot::new;
+            default: throw new IllegalArgumentException("Unknown bot: " + name);
+        }
+    }
+
+    /** Plays {@code games} games on {@code pool}; results are indexed by game, not by finish order. */
+    public static Result[] run(ForkJoinPool pool, long masterSeed, int games,
+                               LongFunction<Controller> bots, int maxTicks) {
+        return run(pool, GameMap.classic(), masterSeed, games, bots, maxTicks);
+    }
+
+    public static Result[] run(ForkJoinPool pool, GameMap level, long masterSeed, int games,
+                               LongFunction<Controller> bots, int maxTicks) {
+        long[] seeds = new long[games];
+        GameRandom master = new GameRandom(masterSeed);
+        for (int i = 0; i < games; i++) seeds[i] = master.nextLong();
+        Result[] results = new Result[games];
+        pool.invoke(new Batch(level, seeds, results, 0, games, bots, maxTicks));
+        return results;
+    }
+
+    private static class Batch extends RecursiveAction {
+        private final GameMap level;
+        private final long[] seeds;
+        private final Result[] results;
+        private final int from, to;
+        private final LongFunction<Controller> bots;
+        private final int maxTicks;
+
+        Batch(GameMap level, long[] seeds, Result[] results, int from, int to,
+              LongFunction<Controller> bots, int maxTicks) {
+            this.level = level;
+            this.seeds = seeds;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.bots = bots;
+            this.maxTicks = maxTicks;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int i = from; i < to; i++) results[i] = play(level, seeds[i], bots, maxTicks, null);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Batch(level, seeds, results, from, mid, bots, maxTicks),
+                      new Batch(level, seeds, results, mid, to, bots, maxTicks));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int games = 1000;
+        long seed = 1;
+        int maxTicks = 20_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String botName = "greedy";
+        String recordFile = null;
+        String eventFile = null;
+        GameMap level = GameMap.classic();
+        int ghosts = 0;
+        boolean checkAlloc = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--max-ticks": maxTicks = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--bot": botName = args[++i]; break;
+                case "--record": recordFile = args[++i]; break;
+                case "--events": eventFile = args[++i]; break;
+                case "--level": level = MapLoader.load(Path.of(args[++i])); break;
+                case "--ghosts": ghosts = Integer.parseInt(args[++i]); break;
+                case "--check-alloc": checkAlloc = true; break;
+                default:
+                    System.err.println("Usage: Simulator [--games N] [--seed S] [--max-ticks T] "
+                            + "[--threads N] [--bot greedy|random|idle|mcts] [--record FILE] [--events FILE] [--level FILE] [--ghosts N] [--check-alloc]");
+                    System.exit(2);
+            }
+        }
+        if (games < 1) {
+            System.err.println("--games must be at least 1");
+            System.exit(2);
+        }
+        if (threads < 1) {
+            System.err.println("--threads must be at least 1");
+            System.exit(2);
+        }
+        if (ghosts > 0) level = level.withGhosts(ghosts);
+        LongFunction<Controller> bots = bot(botName);
+        if (checkAlloc) {
+            int ticks = 10_000;
+            long bytes = allocatedBytes(level, seed, bots, ticks);
+            System.out.printf("Allocation check: %d bytes over %,d ticks, bot=%s, %d ghosts: %s%n",
+                    bytes, ticks, botName, level.ghostSpawns.length, bytes == 0 ? "OK" : "FAILED");
+            System.exit(bytes == 0 ? 0 : 1);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        long start = System.nanoTime();
+        Result[] results = run(pool, level, seed, games, bots, maxTicks);
+        double secs = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        report(results, secs, threads, botName);
+        if (Metrics.ENABLED) System.out.print(Metrics.total().report());
+        if (botName.equals("mcts")) {
+            System.out.printf("MCTS:       %,.0f rollouts/s per thread, %d rollouts per decision%n",
+                    MctsBot.totalRolloutsPerSecond(), MctsBot.ROLLOUTS);
+        }
+
+        Replay[] replay = new Replay[1];
+        GameEvents events = null;
+        GameEvents.Consumer log = null;
+        EventLog eventLog = null;
+        if (eventFile != null) {
+            events = new GameEvents(1 << 14);
+            log = events.start("event-log", eventLog = new EventLog(Path.of(eventFile)));
+        }
+        Result again = play(level, results[0].seed(), bots, maxTicks, replay, events);
+        if (log != null) {
+            log.close();
+            System.out.println("Wrote " + eventLog.written + " events of game 0 to " + eventFile
+                    + (log.lost() > 0 ? " (" + log.lost() + " lost)" : ""));
+        }
+        if (recordFile != null) {
+            replay[0].write(Path.of(recordFile));
+            System.out.println("Recorded game 0 to " + recordFile + " (" + replay[0].fileSize() + " bytes)");
+        }
+        System.out.println("Determinism check: " + (again.equals(results[0]) ? "OK" : "FAILED " + again + " vs " + results[0]));
+    }
+
+    private static void report(Result[] results, double secs, int threads, String botName) {
+        long ticks = 0;
+        int[] outcomes = new int[3];
+        int[] scores = new int[results.length];
+        for (int i = 0; i < results.length; i++) {
+            ticks += results[i].ticks();
+            outcomes[results[i].outcome()]++;
+            scores[i] = results[i].score();
+        }
+        Arrays.sort(scores);
+        int n = results.length;
+        System.out.printf("%d games, bot=%s, %d threads, %.2f s%n", n, botName, threads, secs);
+        System.out.printf("Throughput: %,.0f ticks/s, %,.1f games/s, %.0f ticks/game%n",
+                ticks / secs, n / secs, (double) ticks / n);
+        System.out.printf("Outcomes:   won %d (%.1f%%), lost %d (%.1f%%), capped %d (%.1f%%)%n",
+                outcomes[WON], 100.0 * outcomes[WON] / n,
+                outcomes[LOST], 100.0 * outcomes[LOST] / n,
+                outcomes[CAPPED], 100.0 * outcomes[CAPPED] / n);
+        System.out.printf("Score:      min %d, p50 %d, p90 %d, p99 %d, max %d, mean %.1f%n",
+                scores[0], scores[n / 2], scores[n * 9 / 10], scores[n * 99 / 100], scores[n - 1],
+                Arrays.stream(scores).average().orElse(0));
+    }
+}
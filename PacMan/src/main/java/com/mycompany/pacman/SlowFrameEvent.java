@@ -0,0 +1,21 @@
+package com.mycompany.pacman;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.mycompany.pacman.SlowFrame")
+@Label("Slow Frame")
+@Category("PacMan")
+@Description("A rendered frame that took longer than pacman.slowFrameMs")
+class SlowFrameEvent extends Event {
+    @Label("Frame Time")
+    @Timespan
+    long frameTime;
+
+    @Label("In Game")
+    boolean inGame;
+}
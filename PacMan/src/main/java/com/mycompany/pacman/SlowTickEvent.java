@@ -0,0 +1,37 @@
+package com.mycompany.pacman;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.mycompany.pacman.SlowTick")
+@Label("Slow Tick")
+@Category("PacMan")
+@Description("A game tick that took longer than pacman.slowTickMicros")
+class SlowTickEvent extends Event {
+    @Label("Game Tick")
+    int gameTick;
+
+    @Label("Tick Time")
+    @Timespan
+    long tickTime;
+
+    @Label("movePacman")
+    @Timespan
+    long movePacman;
+
+    @Label("moveGhosts")
+    @Timespan
+    long moveGhosts;
+
+    @Label("checkCollisions")
+    @Timespan
+    long checkCollisions;
+
+    @Label("updateAnimations")
+    @Timespan
+    long updateAnimations;
+}
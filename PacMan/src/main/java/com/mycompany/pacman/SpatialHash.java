@@ -0,0 +1,52 @@
+package com.mycompany.pacman;
+
+import java.util.Arrays;
+
+/**
+ * Cell-indexed hash of ghost positions. Rebuilt once per tick in one pass
+ * over the ghosts, reusing its arrays; finding the ghosts on a cell then only
+ * walks the short chain of ghosts whose cells share its bucket, so the cost
+ * doesn't grow with the ghost count. Chains list ghosts in index order.
+ *
+ * <pre>
+ * for (int i = hash.first(x, y); i >= 0; i = hash.next(i)) {
+ *     if (ghostX[i] == x &amp;&amp; ghostY[i] == y) ...
+ * }
+ * </pre>
+ */
+public class SpatialHash {
+    private int[] head = new int[0];   // bucket -> first ghost, -1 when empty
+    private int[] next = new int[0];   // ghost -> next ghost in the same bucket
+    private int mask;
+    private int width;
+
+    public void rebuild(int[] xs, int[] ys, int count, int width) {
+        this.width = width;
+        int buckets = Integer.highestOneBit(Math.max(count, 4) * 2 - 1) << 1;   // >= 2 * count
+        if (head.length != buckets) {
+            head = new int[buckets];
+            mask = buckets - 1;
+        }
+        if (next.length < count) next = new int[count];
+        Arrays.fill(head, -1);
+        for (int i = count - 1; i >= 0; i--) {
+            int b = bucket(xs[i], ys[i]);
+            next[i] = head[b];
+            head[b] = i;
+        }
+    }
+
+    /** First ghost that may be on (x,y), or -1; callers still compare positions. */
+    public int first(int x, int y) {
+        return head[bucket(x, y)];
+    }
+
+    public int next(int ghost) {
+        return next[ghost];
+    }
+
+    private int bucket(int x, int y) {
+        int h = (y * width + x) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,158 @@
+package com.mycompany.pacman;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Pre-rendered Pac-Man, ghost and pellet images. Everything is drawn once at
+ * the current tile size and display scale and rebuilt when either changes, so
+ * drawing an entity is a single drawImage.
+ */
+public class SpriteCache {
+    // Sprites are S+2*MARGIN wide so the glow halo fits around the tile
+    public static final int MARGIN = 4;
+    public static final int FRIGHTENED = 4;        // ghost colour index for blue
+    public static final int FRIGHTENED_FLASH = 5;  // and for the white flash
+
+    private static final Color[] GHOST_COLORS = {
+        Color.RED, Color.PINK, Color.CYAN, Color.ORANGE, Color.BLUE, Color.WHITE
+    };
+    private static final int MOUTH_FRAMES = 7;     // mouthAngle 0..60 in steps of 10
+
+    private int tileSize = -1;
+    private double scale;
+    private BufferedImage[][] pacman;   // [direction][mouthAngle / 10]
+    private BufferedImage[] ghosts;     // [colour index]
+    private BufferedImage pellet;
+    private BufferedImage powerPellet;
+
+    /** Rebuilds the sprites if the tile size or the device scale of {@code g2} changed. */
+    public void validate(Graphics2D g2) {
+        int S = Constants.TILE_SIZE;
+        double s = g2.getTransform().getScaleX();
+        if (S == tileSize && s == scale) return;
+        tileSize = S;
+        scale = s;
+        GraphicsConfiguration gc = g2.getDeviceConfiguration();
+
+        pacman = new BufferedImage[4][MOUTH_FRAMES];
+        for (int dir = 0; dir < 4; dir++) {
+            for (int f = 0; f < MOUTH_FRAMES; f++) {
+                BufferedImage img = create(gc, S + 2 * MARGIN);
+                Graphics2D g = begin(img);
+                renderPacman(g, S, dir, f * 10);
+                g.dispose();
+                pacman[dir][f] = img;
+            }
+        }
+        ghosts = new BufferedImage[GHOST_COLORS.length];
+        for (int i = 0; i < GHOST_COLORS.length; i++) {
+            BufferedImage img = create(gc, S + 2 * MARGIN);
+            Graphics2D g = begin(img);
+            renderGhost(g, S, GHOST_COLORS[i]);
+            g.dispose();
+            ghosts[i] = img;
+        }
+        pellet = create(gc, S);
+        Graphics2D g = begin(pellet);
+        renderPellet(g, S / 2f, S / 2f, 3, new Color(255, 255, 255, 200));
+        g.dispose();
+        powerPellet = create(gc, S);
+        g = begin(powerPellet);
+        renderPellet(g, S / 2f, S / 2f, 6, new Color(255, 255, 200, 220));
+        g.dispose();
+    }
+
+    public void drawPacman(Graphics2D g2, int px, int py, int direction, int mouthAngle) {
+        int f = Math.max(0, Math.min(MOUTH_FRAMES - 1, mouthAngle / 10));
+        int size = tileSize + 2 * MARGIN;
+        g2.drawImage(pacman[direction][f], px - MARGIN, py - MARGIN, size, size, null);
+    }
+
+    public void drawGhost(Graphics2D g2, int px, int py, int colour) {
+        int size = tileSize + 2 * MARGIN;
+        g2.drawImage(ghosts[colour], px - MARGIN, py - MARGIN, size, size, null);
+    }
+
+    public void drawPellet(Graphics2D g2, int px, int py, boolean power) {
+        g2.drawImage(power ? powerPellet : pellet, px, py, tileSize, tileSize, null);
+    }
+
+    private BufferedImage create(GraphicsConfiguration gc, int size) {
+        int px = (int) Math.ceil(size * scale);
+        if (gc != null) return gc.createCompatibleImage(px, px, Transparency.TRANSLUCENT);
+        return new BufferedImage(px, px, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private Graphics2D begin(BufferedImage img) {
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.scale(scale, scale);
+        return g;
+    }
+
+    private static void renderPacman(Graphics2D g2, int S, int direction, int mouthAngle) {
+        int px = MARGIN, py = MARGIN;
+        int baseAngle = 0;
+        switch (direction) {
+            case Constants.LEFT:
+                baseAngle = 180;
+                break;
+            case Constants.RIGHT:
+                baseAngle = 0;
+                break;
+            case Constants.UP:
+                baseAngle = 90;
+                break;
+            case Constants.DOWN:
+                baseAngle = 270;
+                break;
+        }
+
+        int startAngle = (baseAngle + mouthAngle) % 360;
+        int extent = 360 - 2 * mouthAngle;
+
+        // 1) Soft halo glow behind Pac‑Man
+        g2.setColor(new Color(255, 255,  0,  80));
+        g2.fillOval(px - 4, py - 4, S + 8, S + 8);
+
+        // 2) The crisp, yellow Pac‑Man on top
+        g2.setColor(Color.YELLOW);
+        g2.fillArc(px, py, S, S, startAngle, extent);
+    }
+
+    private static void renderGhost(Graphics2D g2, int S, Color base) {
+        int px = MARGIN, py = MARGIN;
+
+        // 1) glow halo
+        g2.setColor(new Color(base.getRed(), base.getGreen(), base.getBlue(), 80));
+        g2.fillOval(px - 4, py - 4, S + 8, S + 8);
+
+        // 2) body
+        g2.setColor(base);
+        g2.fillOval(px, py, S, S);
+        g2.setColor(base.brighter());
+        g2.fillArc(px, py, S, S, 0, 180);
+
+        // 3) eyes
+        g2.setColor(Color.WHITE);
+        g2.fillOval(px + 4, py + 4, 6, 6);
+        g2.fillOval(px + 10, py + 4, 6, 6);
+
+        // 4) pupils
+        g2.setColor(base == Color.WHITE ? Color.BLACK : Color.BLUE);
+        g2.fillOval(px + 5, py + 5, 3, 3);
+        g2.fillOval(px + 11, py + 5, 3, 3);
+    }
+
+    private static void renderPellet(Graphics2D g2, float cx, float cy, float r, Color glow) {
+        Point2D center = new Point2D.Float(cx,cy);
+        float[] dist = {0f,1f};
+        Color[] colors = { glow, new Color(glow.getRed(), glow.getGreen(), glow.getBlue(),0) };
+        RadialGradientPaint p = new RadialGradientPaint(center, r, dist, colors);
+        g2.setPaint(p);
+        g2.fill(new Ellipse2D.Float(cx-r, cy-r, 2*r, 2*r));
+    }
+}
@@ -0,0 +1,121 @@
+package com.mycompany.pacman;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Sends each encoded frame to any number of spectator channels. All of them
+ * read the same buffer through duplicate() so nothing is copied per viewer.
+ * A non-blocking viewer that can't take a whole frame keeps the unsent tail
+ * of that one frame as a backlog; if it is still behind on the next tick it
+ * skips frames and picks up again at the next scheduled keyframe. Only new
+ * viewers make the encoder send one early, so a slow viewer never costs the
+ * others bandwidth.
+ */
+public class StateBroadcaster {
+    private final List<Viewer> viewers = new ArrayList<>();
+    private final ConcurrentLinkedQueue<WritableByteChannel> joining = new ConcurrentLinkedQueue<>();
+    private ServerSocketChannel server;
+
+    private static final class Viewer {
+        final WritableByteChannel channel;
+        ByteBuffer backlog = ByteBuffer.allocate(0);   // unsent tail of a frame, reused
+        boolean waiting = true;   // until the next keyframe
+
+        Viewer(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /** Adds a channel; safe to call from any thread. */
+    public void add(WritableByteChannel channel) {
+        joining.add(channel);
+    }
+
+    public int viewers() {
+        return viewers.size();
+    }
+
+    /** True when a viewer has just joined, so the encoder should send a keyframe now. */
+    public boolean wantsKeyframe() {
+        return !joining.isEmpty();
+    }
+
+    /** Encodes one frame and sends it to every viewer. Call once per tick from the game thread. */
+    public void publish(StateEncoder encoder) {
+        boolean joined = false;
+        for (WritableByteChannel c; (c = joining.poll()) != null; joined = true) viewers.add(new Viewer(c));
+        // Whoever joins next needs a keyframe anyway; this also keeps the encoder from piling up deltas
+        if (viewers.isEmpty() || joined) encoder.requestKeyframe();
+        if (viewers.isEmpty()) return;
+        ByteBuffer frame = encoder.encode();
+        boolean keyframe = encoder.lastWasKeyframe();
+        for (int i = viewers.size() - 1; i >= 0; i--) {
+            Viewer v = viewers.get(i);
+            try {
+                send(v, frame.duplicate(), keyframe);
+            } catch (IOException e) {
+                try {
+                    v.channel.close();
+                } catch (IOException ignored) {
+                }
+                viewers.remove(i);
+            }
+        }
+    }
+
+    private void send(Viewer v, ByteBuffer frame, boolean keyframe) throws IOException {
+        if (v.backlog.hasRemaining()) {
+            v.channel.write(v.backlog);
+            if (v.backlog.hasRemaining()) {
+                // Still stuck: the partial frame has to finish to keep framing
+                // intact, but newer frames are skipped until the next keyframe
+                v.waiting = true;
+                return;
+            }
+        }
+        if (v.waiting) {
+            if (!keyframe) return;
+            v.waiting = false;
+        }
+        v.channel.write(frame);
+        if (frame.hasRemaining()) {
+            if (v.backlog.capacity() < frame.remaining()) v.backlog = ByteBuffer.allocate(frame.remaining());
+            v.backlog.clear();
+            v.backlog.put(frame).flip();
+        }
+    }
+
+    /** Accepts spectators on localhost:port in a background thread. */
+    public void listen(int port) throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", port));
+        Thread accept = new Thread(() -> {
+            while (server.isOpen()) {
+                try {
+                    SocketChannel s = server.accept();
+                    s.configureBlocking(false);
+                    s.socket().setTcpNoDelay(true);
+                    add(s);
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }, "spectator-accept");
+        accept.setDaemon(true);
+        accept.start();
+    }
+
+    public void close() throws IOException {
+        if (server != null) server.close();
+        for (Viewer v : viewers) v.channel.close();
+        viewers.clear();
+    }
+}
@@ -0,0 +1,155 @@
+package com.mycompany.pacman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Rebuilds game state from a StateEncoder stream for a headless viewer.
+ * Deltas before the first keyframe are skipped.
+ */
+public class StateDecoder {
+    public int width, height;
+    public Board board;
+    public int pacmanX, pacmanY, pacmanDir;
+    public int ghostCount;
+    public int[] ghostX = new int[0], ghostY = new int[0], ghostType = new int[0], ghostDir = new int[0];
+    public int score, lives, powerTimer, gameTick;
+    public boolean powerMode, gameOver, gameWon;
+    public boolean synced;
+    public long frames, bytes;
+
+    private ByteBuffer in = ByteBuffer.allocate(1 << 16);
+
+    /**
+     * Reads whatever the channel has and decodes every complete frame.
+     * Returns false once the channel is at end of stream.
+     */
+    public boolean readFrom(ReadableByteChannel channel) throws IOException {
+        int n = channel.read(in);
+        in.flip();
+        while (true) {
+            in.mark();
+            int len = tryVarint(in);
+            if (len < 0 || in.remaining() < len) {
+                in.reset();
+                if (len > in.capacity() - 5) {
+                    ByteBuffer bigger = ByteBuffer.allocate(len + 5);
+                    bigger.put(in);
+                    in = bigger;
+                    return n >= 0;
+                }
+                break;
+            }
+            int end = in.position() + len;
+            ByteBuffer payload = in.slice(in.position(), len);
+            decode(payload);
+            bytes += len + Varint.size(len);
+            in.position(end);
+        }
+        in.compact();
+        return n >= 0;
+    }
+
+    private static int tryVarint(ByteBuffer b) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!b.hasRemaining()) return -1;
+            byte v = b.get();
+            value |= (v & 0x7F) << shift;
+            if (v >= 0) return value;
+        }
+        throw new IllegalStateException("Corrupt frame length");
+    }
+
+    /** Applies one frame payload (type byte onwards). */
+    public void decode(ByteBuffer p) {
+        frames++;
+        byte type = p.get();
+        if (type == StateEncoder.KEYFRAME) {
+            decodeKeyframe(p);
+            synced = true;
+        } else if (type == StateEncoder.DELTA && synced) {
+            decodeDelta(p);
+        }
+    }
+
+    private void decodeKeyframe(ByteBuffer p) {
+        int w = Varint.get(p), h = Varint.get(p);
+        if (board == null || w != width || h != height) board = new Board(w, h);
+        width = w;
+        height = h;
+        gameTick = Varint.get(p);
+        pacmanX = Varint.get(p);
+        pacmanY = Varint.get(p);
+        pacmanDir = p.get();
+        score = Varint.get(p);
+        lives = p.get();
+        setFlags(p.get());
+        powerTimer = Varint.get(p);
+        int n = Varint.get(p);
+        if (ghostX.length != n) {
+            ghostX = new int[n];
+            ghostY = new int[n];
+            ghostType = new int[n];
+            ghostDir = new int[n];
+        }
+        ghostCount = n;
+        for (int i = 0; i < n; i++) {
+            ghostX[i] = Varint.get(p);
+            ghostY[i] = Varint.get(p);
+            ghostType[i] = p.get();
+            ghostDir[i] = p.get();
+        }
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) board.set(x, y, Constants.EMPTY);
+        }
+        int[] kinds = {Constants.WALL, Constants.PELLET, Constants.POWER_PELLET, Constants.GHOST_BOX};
+        for (int kind : kinds) {
+            int bits = 0, n8 = 8;
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    if (n8 == 8) {
+                        bits = p.get();
+                        n8 = 0;
+                    }
+                    if ((bits & (1 << n8++)) != 0) board.set(x, y, kind);
+                }
+            }
+        }
+    }
+
+    private void decodeDelta(ByteBuffer p) {
+        gameTick = Varint.get(p);
+        int mask = p.get();
+        if ((mask & StateEncoder.PACMAN) != 0) {
+            pacmanX = Varint.get(p);
+            pacmanY = Varint.get(p);
+            pacmanDir = p.get();
+        }
+        if ((mask & StateEncoder.SCORE) != 0) score += Varint.unZigZag(Varint.get(p));
+        if ((mask & StateEncoder.LIVES) != 0) lives = p.get();
+        if ((mask & StateEncoder.FLAGS) != 0) setFlags(p.get());
+        if ((mask & StateEncoder.POWER_TIMER) != 0) powerTimer = Varint.get(p);
+        if ((mask & StateEncoder.GHOSTS) != 0) {
+            for (int n = Varint.get(p); n > 0; n--) {
+                int i = Varint.get(p);
+                ghostX[i] = Varint.get(p);
+                ghostY[i] = Varint.get(p);
+                ghostDir[i] = p.get();
+            }
+        }
+        if ((mask & StateEncoder.CELLS) != 0) {
+            for (int n = Varint.get(p); n > 0; n--) {
+                int cell = Varint.get(p);
+                board.eat(cell % width, cell / width);
+            }
+        }
+    }
+
+    private void setFlags(int f) {
+        powerMode = (f & StateEncoder.POWER_MODE) != 0;
+        gameOver = (f & StateEncoder.GAME_OVER) != 0;
+        gameWon = (f & StateEncoder.GAME_WON) != 0;
+    }
+}
@@ -0,0 +1,232 @@
+package com.mycompany.pacman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Turns a running GameEngine into a binary stream for spectators. Each call
+ * to encode() produces one frame holding only what changed since the last
+ * one; every KEYFRAME_INTERVAL frames, and after any board reset, a full
+ * keyframe is sent instead so late joiners and lossy consumers can resync.
+ *
+ * Frame: varint payload length, type byte, payload. Deltas start with the
+ * game tick and a change mask, followed by the sections named in the mask.
+ * A typical delta on the stock map is 20-30 bytes.
+ */
+public class StateEncoder implements BoardListener {
+    public static final int KEYFRAME_INTERVAL = 100;
+
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+
+    // Delta mask bits
+    static final int PACMAN = 1, SCORE = 2, LIVES = 4, FLAGS = 8, GHOSTS = 16, CELLS = 32, POWER_TIMER = 64;
+
+    // Flags byte
+    static final int POWER_MODE = 1, GAME_OVER = 2, GAME_WON = 4;
+
+    private static final int LENGTH_RESERVE = 5;
+
+    private final GameEngine engine;
+    private ByteBuffer frame;
+    private boolean keyframeDue = true;
+    private int sinceKeyframe;
+    private boolean lastWasKeyframe;
+
+    private int[] cleared = new int[16];
+    private int clearedCount;
+
+    private int pacmanX, pacmanY, pacmanDir, score, lives, flags, powerTimer;
+    private int[] ghostX, ghostY, ghostDir;
+
+    public StateEncoder(GameEngine engine) {
+        this.engine = engine;
+        int n = engine.ghostCount();
+        ghostX = new int[n];
+        ghostY = new int[n];
+        ghostDir = new int[n];
+        int cells = engine.map.width() * engine.map.height();
+        frame = ByteBuffer.allocateDirect(LENGTH_RESERVE + 64 + n * 20 + 4 * ((cells + 7) / 8));
+        engine.addBoardListener(this);
+    }
+
+    @Override
+    public void cellCleared(int x, int y) {
+        if (clearedCount == cleared.length) cleared = java.util.Arrays.copyOf(cleared, clearedCount * 2);
+        cleared[clearedCount++] = y * engine.map.width() + x;
+    }
+
+    // The next frame is a keyframe carrying the whole board, so the cells cleared so far can go
+    @Override
+    public void boardReset() {
+        requestKeyframe();
+    }
+
+    public void requestKeyframe() {
+        keyframeDue = true;
+        clearedCount = 0;
+    }
+
+    public boolean lastWasKeyframe() {
+        return lastWasKeyframe;
+    }
+
+    /**
+     * Encodes the current engine state. The returned buffer (position to limit
+     * is the frame) is reused by the next call.
+     */
+    public ByteBuffer encode() {
+        if (ghostX.length != engine.ghostCount()) {
+            // New level
+            ghostX = new int[engine.ghostCount()];
+            ghostY = new int[engine.ghostCount()];
+            ghostDir = new int[engine.ghostCount()];
+            keyframeDue = true;
+        }
+        lastWasKeyframe = keyframeDue || sinceKeyframe >= KEYFRAME_INTERVAL - 1;
+        int planes = lastWasKeyframe ? 4 * ((engine.map.width() * engine.map.height() + 7) / 8) : 0;
+        ensureCapacity(LENGTH_RESERVE + 64 + ghostX.length * 20 + clearedCount * 5 + planes);
+        frame.clear();
+        frame.position(LENGTH_RESERVE);
+        if (lastWasKeyframe) {
+            writeKeyframe();
+            keyframeDue = false;
+            sinceKeyframe = 0;
+        } else {
+            writeDelta();
+            sinceKeyframe++;
+        }
+        clearedCount = 0;
+        remember();
+
+        // Put the length varint right in front of the payload
+        int end = frame.position();
+        int len = end - LENGTH_RESERVE;
+        int start = LENGTH_RESERVE - Varint.size(len);
+        frame.position(start);
+        Varint.put(frame, len);
+        frame.limit(end).position(start);
+        return frame;
+    }
+
+    /** Encodes and writes the frame fully, for blocking channels such as files. */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer b = encode();
+        while (b.hasRemaining()) channel.write(b);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (frame.capacity() < bytes) frame = ByteBuffer.allocateDirect(Math.max(bytes, frame.capacity() * 2));
+    }
+
+    private int currentFlags() {
+        return (engine.powerMode ? POWER_MODE : 0) | (engine.gameOver ? GAME_OVER : 0)
+                | (engine.gameWon ? GAME_WON : 0);
+    }
+
+    private void writeKeyframe() {
+        Board map = engine.map;
+        frame.put(KEYFRAME);
+        Varint.put(frame, map.width());
+        Varint.put(frame, map.height());
+        Varint.put(frame, engine.gameTick);
+        Varint.put(frame, engine.pacmanX);
+        Varint.put(frame, engine.pacmanY);
+        frame.put((byte) engine.getDirectionFromDelta(engine.dirX, engine.dirY));
+        Varint.put(frame, engine.score);
+        frame.put((byte) engine.lives);
+        frame.put((byte) currentFlags());
+        Varint.put(frame, engine.powerTicksLeft());
+        Varint.put(frame, engine.ghostCount());
+        for (int i = 0; i < engine.ghostCount(); i++) {
+            Varint.put(frame, engine.ghostX[i]);
+            Varint.put(frame, engine.ghostY[i]);
+            frame.put((byte) engine.ghostType[i]);
+            frame.put((byte) engine.ghostDir[i]);
+        }
+        // One bit per cell, row-major, for each cell kind that has a plane
+        int[] kinds = {Constants.WALL, Constants.PELLET, Constants.POWER_PELLET, Constants.GHOST_BOX};
+        for (int kind : kinds) {
+            int bits = 0, n = 0;
+            for (int y = 0; y < map.height(); y++) {
+                for (int x = 0; x < map.width(); x++) {
+                    if (map.get(x, y) == kind) bits |= 1 << n;
+                    if (++n == 8) {
+                        frame.put((byte) bits);
+                        bits = 0;
+                        n = 0;
+                    }
+                }
+            }
+            if (n > 0) frame.put((byte) bits);
+        }
+    }
+
+    private void writeDelta() {
+        frame.put(DELTA);
+        Varint.put(frame, engine.gameTick);
+        int maskPos = frame.position();
+        frame.put((byte) 0);
+        int mask = 0;
+
+        int dir = engine.getDirectionFromDelta(engine.dirX, engine.dirY);
+        if (engine.pacmanX != pacmanX || engine.pacmanY != pacmanY || dir != pacmanDir) {
+            mask |= PACMAN;
+            Varint.put(frame, engine.pacmanX);
+            Varint.put(frame, engine.pacmanY);
+            frame.put((byte) dir);
+        }
+        if (engine.score != score) {
+            mask |= SCORE;
+            Varint.put(frame, Varint.zigZag(engine.score - score));
+        }
+        if (engine.lives != lives) {
+            mask |= LIVES;
+            frame.put((byte) engine.lives);
+        }
+        if (currentFlags() != flags) {
+            mask |= FLAGS;
+            frame.put((byte) currentFlags());
+        }
+        if (engine.powerTicksLeft() != powerTimer) {
+            mask |= POWER_TIMER;
+            Varint.put(frame, engine.powerTicksLeft());
+        }
+        int[] gx = engine.ghostX, gy = engine.ghostY, gd = engine.ghostDir;
+        int changed = 0;
+        for (int i = 0; i < ghostX.length; i++) {
+            if (gx[i] != ghostX[i] || gy[i] != ghostY[i] || gd[i] != ghostDir[i]) changed++;
+        }
+        if (changed > 0) {
+            mask |= GHOSTS;
+            Varint.put(frame, changed);
+            for (int i = 0; i < ghostX.length; i++) {
+                if (gx[i] == ghostX[i] && gy[i] == ghostY[i] && gd[i] == ghostDir[i]) continue;
+                Varint.put(frame, i);
+                Varint.put(frame, gx[i]);
+                Varint.put(frame, gy[i]);
+                frame.put((byte) gd[i]);
+            }
+        }
+        if (clearedCount > 0) {
+            mask |= CELLS;
+            Varint.put(frame, clearedCount);
+            for (int i = 0; i < clearedCount; i++) Varint.put(frame, cleared[i]);
+        }
+        frame.put(maskPos, (byte) mask);
+    }
+
+    private void remember() {
+        pacmanX = engine.pacmanX;
+        pacmanY = engine.pacmanY;
+        pacmanDir = engine.getDirectionFromDelta(engine.dirX, engine.dirY);
+        score = engine.score;
+        lives = engine.lives;
+        flags = currentFlags();
+        powerTimer = engine.powerTicksLeft();
+        System.arraycopy(engine.ghostX, 0, ghostX, 0, ghostX.length);
+        System.arraycopy(engine.ghostY, 0, ghostY, 0, ghostY.length);
+        System.arraycopy(engine.ghostDir, 0, ghostDir, 0, ghostDir.length);
+    }
+}
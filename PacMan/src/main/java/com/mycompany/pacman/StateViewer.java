@@ -0,0 +1,142 @@
+package com.mycompany.pacman;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongFunction;
+
+/**
+ * Headless spectator for the StateEncoder stream.
+ *
+ * <pre>
+ * java -Dpacman.spectatorPort=7777 -jar PacMan.jar          # game broadcasts
+ * java -cp target/classes com.mycompany.pacman.StateViewer --connect localhost:7777
+ * java -cp target/classes com.mycompany.pacman.StateViewer --demo [--seed S] [--out game.pms]
+ * java -cp target/classes com.mycompany.pacman.StateViewer --file game.pms
+ * </pre>
+ * --demo plays a bot game, streams it through a pipe, checks the decoded
+ * state against the engine every tick and reports the stream size.
+ */
+public class StateViewer {
+
+    public static void main(String[] args) throws IOException {
+        String connect = null, file = null, out = null;
+        boolean demo = false;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--connect": connect = args[++i]; break;
+                case "--file": file = args[++i]; break;
+                case "--out": out = args[++i]; break;
+                case "--demo": demo = true; break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                default:
+                    System.err.println("Usage: StateViewer --connect HOST:PORT | --file FILE | --demo [--seed S] [--out FILE]");
+                    System.exit(2);
+            }
+        }
+        if (demo) {
+            demo(seed, out);
+        } else if (file != null) {
+            StateDecoder decoder = new StateDecoder();
+            try (FileChannel in = FileChannel.open(Path.of(file))) {
+                while (decoder.readFrom(in)) { }
+            }
+            printStatus(decoder);
+        } else if (connect != null) {
+            int colon = connect.lastIndexOf(':');
+            StateDecoder decoder = new StateDecoder();
+            try (SocketChannel in = SocketChannel.open(new InetSocketAddress(
+                    connect.substring(0, colon), Integer.parseInt(connect.substring(colon + 1))))) {
+                long lastPrint = 0;
+                while (decoder.readFrom(in)) {
+                    if (decoder.synced && System.nanoTime() - lastPrint > 1_000_000_000L) {
+                        printStatus(decoder);
+                        lastPrint = System.nanoTime();
+                    }
+                }
+            }
+            printStatus(decoder);
+        } else {
+            System.err.println("Nothing to do; see --help");
+            System.exit(2);
+        }
+    }
+
+    private static void printStatus(StateDecoder d) {
+        System.out.printf("tick %d  score %d  lives %d  pellets %d  pacman (%d,%d)%s%s  [%d frames, %.1f bytes/frame]%n",
+                d.gameTick, d.score, d.lives, d.board == null ? 0 : d.board.pelletsLeft(), d.pacmanX, d.pacmanY,
+                d.powerMode ? "  POWER" : "", d.gameOver ? (d.gameWon ? "  WON" : "  GAME OVER") : "",
+                d.frames, d.frames == 0 ? 0.0 : (double) d.bytes / d.frames);
+    }
+
+    // Plays a greedy game, round-trips every frame and checks it matches
+    private static void demo(long seed, String out) throws IOException {
+        GameRandom seeds = new GameRandom(seed);
+        GameEngine engine = new GameEngine(seeds.nextLong());
+        Controller bot = ((LongFunction<Controller>) GreedyBot::new).apply(seeds.nextLong());
+        StateEncoder encoder = new StateEncoder(engine);
+        StateDecoder decoder = new StateDecoder();
+        FileChannel file = out != null ? FileChannel.open(Path.of(out), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING) : null;
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+
+        long bytes = 0, keyframes = 0, keyBytes = 0;
+        int ticks = 0, dx = 0, dy = 0;
+        long start = System.nanoTime();
+        while (true) {
+            ByteBuffer frame = encoder.encode();
+            int size = frame.remaining();
+            bytes += size;
+            if (encoder.lastWasKeyframe()) {
+                keyframes++;
+                keyBytes += size;
+            }
+            if (file != null) file.write(frame.duplicate());
+            while (frame.hasRemaining()) pipe.sink().write(frame);
+            decoder.readFrom(pipe.source());
+            verify(engine, decoder);
+
+            if (engine.gameOver || ticks == 20000) break;
+            int d = bot.nextDirection(engine);
+            if (d >= 0) {
+                dx = Constants.DELTAS[d][0];
+                dy = Constants.DELTAS[d][1];
+                engine.lastDirection = d;
+            }
+            engine.tick(dx, dy);
+            ticks++;
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+        if (file != null) file.close();
+
+        System.out.printf("%d ticks, score %d, %s%n", ticks, engine.score,
+                engine.gameWon ? "won" : engine.gameOver ? "lost" : "capped");
+        System.out.printf("Stream: %d bytes, %.1f bytes/tick (%d keyframes of ~%d bytes, deltas %.1f bytes)%n",
+                bytes, (double) bytes / ticks, keyframes, keyframes == 0 ? 0 : keyBytes / keyframes,
+                (double) (bytes - keyBytes) / Math.max(1, ticks + 1 - keyframes));
+        System.out.printf("At 10 ticks/s: %.2f kbit/s per spectator; every tick verified (%.0f ticks/s)%n",
+                bytes * 8.0 / ticks * 10 / 1000, ticks / secs);
+    }
+
+    private static void verify(GameEngine e, StateDecoder d) {
+        boolean ok = d.synced && d.gameTick == e.gameTick && d.pacmanX == e.pacmanX && d.pacmanY == e.pacmanY
+                && d.score == e.score && d.lives == e.lives && d.powerMode == e.powerMode
+                && d.powerTimer == e.powerTicksLeft() && d.gameOver == e.gameOver
+                && d.board.pelletsLeft() == e.map.pelletsLeft();
+        ok &= d.ghostCount == e.ghostCount();
+        for (int i = 0; ok && i < e.ghostCount(); i++) {
+            ok = d.ghostX[i] == e.ghostX[i] && d.ghostY[i] == e.ghostY[i] && d.ghostDir[i] == e.ghostDir[i];
+        }
+        for (int y = 0; ok && y < e.map.height(); y++) {
+            for (int x = 0; ok && x < e.map.width(); x++) ok = d.board.get(x, y) == e.map.get(x, y);
+        }
+        if (!ok) throw new IllegalStateException("Decoded state diverged at tick " + e.gameTick);
+    }
+}
@@ -0,0 +1,120 @@
+package com.mycompany.pacman;
+
+import java.util.Arrays;
+
+/**
+ * Hashed timing wheel over game ticks. A timer due at tick t hangs off slot
+ * t % slots in a doubly linked chain, so scheduling and cancelling are O(1)
+ * and expiring a tick only looks at its own slot; timers more than one turn
+ * of the wheel away share the slot and are skipped until their tick comes.
+ * Timers are pooled int nodes, so nothing is allocated once the pool has
+ * grown to the most timers ever pending at once.
+ *
+ * <pre>
+ * for (int t; (t = wheel.expire(tick)) >= 0; ) handle(wheel.kind(t), wheel.arg(t));
+ * </pre>
+ */
+public class TimingWheel {
+    private final int[] head;   // slot -> first timer, -1 when empty
+    private final int mask;
+    private int[] due = new int[0], kind = new int[0], arg = new int[0];
+    private int[] next = new int[0], prev = new int[0];
+    private int used;           // nodes handed out so far; below that, free ones chain through next
+    private int free = -1;
+    private int pending;
+
+    /** A wheel with at least {@code slots} slots, rounded up to a power of two. */
+    public TimingWheel(int slots) {
+        int n = Integer.highestOneBit(Math.max(slots, 2) - 1) << 1;
+        head = new int[n];
+        mask = n - 1;
+        Arrays.fill(head, -1);
+    }
+
+    /** Schedules a timer for tick; returns its handle, valid until it expires or is cancelled. */
+    public int schedule(int tick, int kind, int arg) {
+        int t = free;
+        if (t >= 0) {
+            free = next[t];
+        } else {
+            if (used == due.length) grow();
+            t = used++;
+        }
+        due[t] = tick;
+        this.kind[t] = kind;
+        this.arg[t] = arg;
+        int s = tick & mask;
+        prev[t] = -1;
+        next[t] = head[s];
+        if (head[s] >= 0) prev[head[s]] = t;
+        head[s] = t;
+        pending++;
+        return t;
+    }
+
+    public void cancel(int timer) {
+        unlink(timer);
+        release(timer);
+    }
+
+    /**
+     * Takes one timer due at tick off the wheel and returns it, or -1 once
+     * there are none left; kind() and arg() stay readable until the next
+     * schedule. Timers due on the same tick come out newest first.
+     */
+    public int expire(int tick) {
+        if (pending == 0) return -1;
+        for (int t = head[tick & mask]; t >= 0; t = next[t]) {
+            if (due[t] != tick) continue;
+            unlink(t);
+            release(t);
+            return t;
+        }
+        return -1;
+    }
+
+    public int kind(int timer) {
+        return kind[timer];
+    }
+
+    public int arg(int timer) {
+        return arg[timer];
+    }
+
+    public int due(int timer) {
+        return due[timer];
+    }
+
+    public int pending() {
+        return pending;
+    }
+
+    /** Drops every timer; costs the number of nodes ever used, not the number of slots. */
+    public void clear() {
+        for (int t = 0; t < used; t++) head[due[t] & mask] = -1;
+        used = 0;
+        free = -1;
+        pending = 0;
+    }
+
+    private void unlink(int t) {
+        if (prev[t] >= 0) next[prev[t]] = next[t];
+        else head[due[t] & mask] = next[t];
+        if (next[t] >= 0) prev[next[t]] = prev[t];
+    }
+
+    private void release(int t) {
+        next[t] = free;
+        free = t;
+        pending--;
+    }
+
+    private void grow() {
+        int n = Math.max(8, due.length * 2);
+        due = Arrays.copyOf(due, n);
+        kind = Arrays.copyOf(kind, n);
+        arg = Arrays.copyOf(arg, n);
+        next = Arrays.copyOf(next, n);
+        prev = Arrays.copyOf(prev, n);
+    }
+}
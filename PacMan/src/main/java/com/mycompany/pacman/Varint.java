@@ -0,0 +1,52 @@
+package com.mycompany.pacman;
+
+import java.nio.ByteBuffer;
+
+/** LEB128-style unsigned varints: 7 bits per byte, high bit set on all but the last byte. */
+public final class Varint {
+    private Varint() {}
+
+    public static void put(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    public static int get(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    /** Writes into {@code out} at {@code pos} and returns the position after the varint. */
+    public static int put(byte[] out, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    public static int size(int value) {
+        int n = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            n++;
+        }
+        return n;
+    }
+
+    public static int zigZag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    public static int unZigZag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
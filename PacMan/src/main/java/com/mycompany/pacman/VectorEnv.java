@@ -0,0 +1,150 @@
+package com.mycompany.pacman;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * K PacmanEnvs stepped in lockstep. Env i's observation sits at
+ * i * observationBytes in one direct, native-order buffer; actions go in
+ * actions[], and step() fills rewards[] and dones[]. Finished games restart
+ * on their own (see PacmanEnv.autoReset).
+ *
+ * The envs are split into one contiguous slice per thread. The caller's
+ * thread steps the first slice and parked worker threads the others, woken
+ * per step by a generation counter, so stepping allocates nothing. Every env
+ * draws from its own seed, so results don't depend on the thread count.
+ *
+ * <pre>
+ * java -cp target/classes com.mycompany.pacman.VectorEnv --envs 64 --threads 8 --steps 10000000
+ * </pre>
+ */
+public class VectorEnv implements AutoCloseable {
+    private static final int SPINS = 1 << 10;
+
+    public final PacmanEnv[] envs;
+    public final int observationBytes;
+    public final ByteBuffer observations;
+    public final int[] actions;
+    public final float[] rewards;
+    public final boolean[] dones;
+
+    private final int[] sliceStart;
+    private final Thread[] workers;
+    private volatile long generation;
+    private volatile boolean closed;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public VectorEnv(GameMap level, int count, int threads) {
+        observationBytes = PacmanEnv.observationBytes(level);
+        observations = ByteBuffer.allocateDirect(count * observationBytes).order(ByteOrder.nativeOrder());
+        envs = new PacmanEnv[count];
+        for (int i = 0; i < count; i++) {
+            envs[i] = new PacmanEnv(level, observations, i * observationBytes);
+            envs[i].autoReset = true;
+        }
+        actions = new int[count];
+        rewards = new float[count];
+        dones = new boolean[count];
+
+        threads = Math.max(1, Math.min(threads, count));
+        sliceStart = new int[threads + 1];
+        for (int t = 0; t <= threads; t++) sliceStart[t] = (int) ((long) count * t / threads);
+        workers = new Thread[threads - 1];
+        for (int t = 1; t < threads; t++) {
+            int slice = t;
+            workers[t - 1] = new Thread(() -> work(slice), "VectorEnv-" + t);
+            workers[t - 1].setDaemon(true);
+            workers[t - 1].start();
+        }
+    }
+
+    /** Starts a new game in every env; env i is seeded from the i-th value drawn from seed. */
+    public void reset(long seed) {
+        GameRandom seeds = new GameRandom(seed);
+        for (int i = 0; i < envs.length; i++) {
+            envs[i].reset(seeds.nextLong());
+            rewards[i] = 0;
+            dones[i] = false;
+        }
+    }
+
+    /** Steps every env with its action from actions[] and waits for all of them. */
+    public void step() {
+        if (closed) throw new IllegalStateException("VectorEnv is closed");
+        pending.set(workers.length);
+        generation++;
+        for (Thread w : workers) LockSupport.unpark(w);
+        stepSlice(0);
+        for (int spins = 0; pending.get() != 0; spins++) {
+            if (spins < SPINS) Thread.onSpinWait();
+            else Thread.yield();
+        }
+    }
+
+    private void stepSlice(int slice) {
+        for (int i = sliceStart[slice]; i < sliceStart[slice + 1]; i++) {
+            rewards[i] = envs[i].step(actions[i]);
+            dones[i] = envs[i].done;
+        }
+    }
+
+    private void work(int slice) {
+        long seen = 0;
+        while (true) {
+            for (int spins = 0; generation == seen && !closed; spins++) {
+                if (spins < SPINS) Thread.onSpinWait();
+                else LockSupport.park(this);
+            }
+            if (closed) return;
+            seen = generation;
+            stepSlice(slice);
+            pending.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread w : workers) LockSupport.unpark(w);
+    }
+
+    public static void main(String[] args) {
+        int count = 64;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long steps = 10_000_000;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--envs": count = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--steps": steps = Long.parseLong(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                default:
+                    System.err.println("Usage: VectorEnv [--envs K] [--threads N] [--steps S] [--seed S]");
+                    System.exit(2);
+            }
+        }
+        try (VectorEnv vec = new VectorEnv(GameMap.classic(), count, threads)) {
+            GameRandom rand = new GameRandom(seed);
+            vec.reset(seed);
+            long rounds = Math.max(1, steps / count), episodes = 0;
+            double reward = 0;
+            long start = System.nanoTime();
+            for (long r = 0; r < rounds; r++) {
+                // Random walk: a new direction every few steps, as Controller.random does
+                for (int i = 0; i < count; i++) vec.actions[i] = rand.nextInt(8) == 0 ? rand.nextInt(4) : -1;
+                vec.step();
+                for (int i = 0; i < count; i++) {
+                    reward += vec.rewards[i];
+                    if (vec.dones[i]) episodes++;
+                }
+            }
+            double secs = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d envs, %d threads: %,.0f steps/s, %d episodes, mean reward %.1f per episode%n",
+                    count, vec.workers.length + 1, rounds * count / secs, episodes,
+                    episodes > 0 ? reward / episodes : 0);
+        }
+    }
+}
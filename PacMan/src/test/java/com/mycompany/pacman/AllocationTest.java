@@ -0,0 +1,25 @@
+package com.mycompany.pacman;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** The allocation budget of a game tick is zero; same check as Simulator --check-alloc. */
+class AllocationTest {
+    private static final int TICKS = 10_000;
+
+    @Test
+    void steadyTicksAllocateNothing() {
+        long bytes = Simulator.allocatedBytes(GameMap.classic(), 7, Simulator.bot("greedy"), TICKS);
+        assumeTrue(bytes >= 0, "JVM can't measure per-thread allocation");
+        assertEquals(0, bytes, "bytes allocated over " + TICKS + " ticks");
+    }
+
+    @Test
+    void steadyTicksAllocateNothingWithASwarm() {
+        long bytes = Simulator.allocatedBytes(GameMap.classic().withGhosts(64), 7, Simulator.bot("greedy"), TICKS);
+        assumeTrue(bytes >= 0, "JVM can't measure per-thread allocation");
+        assertEquals(0, bytes, "bytes allocated over " + TICKS + " ticks");
+    }
+}
@@ -0,0 +1,104 @@
+package com.mycompany.pacman;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Crash recovery and concurrent appends of the memory-mapped score log. */
+class HighScoreStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void tornRecordIsWipedOnOpen() throws IOException {
+        Path file = dir.resolve("scores.pmhs");
+        // Never closed: a crash before any checkpoint, so reopening scans every record
+        HighScoreStore crashed = HighScoreStore.open(file);
+        for (int i = 1; i <= 10; i++) crashed.add("P" + i, i * 100, 1000, i);
+
+        // The last record lost its CRC, as if the game died while writing it
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            long crc = HighScoreStore.HEADER + 9L * HighScoreStore.RECORD_SIZE + 28;
+            channel.write(ByteBuffer.allocate(4), crc);
+        }
+
+        try (HighScoreStore store = HighScoreStore.open(file)) {
+            assertEquals(1, store.repaired());
+            assertEquals(9, store.size());
+            assertNull(store.read(9));
+            assertEquals(List.of(900, 800, 700, 600, 500, 400, 300, 200, 100), scores(store.top(HighScoreStore.TOP_N)));
+        }
+        // Wiped, not just skipped: the next open finds nothing to repair and the slot is reused
+        try (HighScoreStore store = HighScoreStore.open(file)) {
+            assertEquals(0, store.repaired());
+            assertEquals(9, store.add("NEW", 50, 1000, 11).index());
+        }
+        try (HighScoreStore store = HighScoreStore.open(file)) {
+            assertEquals(10, store.size());
+            assertEquals(50, store.top(HighScoreStore.TOP_N).get(9).score());
+        }
+    }
+
+    @Test
+    void concurrentAppendsAreAllKept() throws Exception {
+        Path file = dir.resolve("scores.pmhs");
+        int threads = 8;
+        int perThread = 5000;   // enough for checkpoints to run while other threads append
+        int total = threads * perThread;
+        try (HighScoreStore store = HighScoreStore.open(file)) {
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                workers[t] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < perThread; i++) store.add("T" + first, i * threads + first, 1000, first);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread w : workers) w.join();
+            assertEquals(total, store.size());
+            assertBestScores(store, total);
+        }
+
+        try (HighScoreStore store = HighScoreStore.open(file)) {
+            assertEquals(0, store.repaired());
+            assertEquals(total, store.size());
+            boolean[] seen = new boolean[total];
+            for (long i = 0; i < total; i++) {
+                HighScoreStore.Entry e = store.read(i);
+                assertNotNull(e, "record " + i);
+                seen[e.score()] = true;
+            }
+            for (int s = 0; s < total; s++) assertTrue(seen[s], "score " + s);
+            assertBestScores(store, total);
+        }
+    }
+
+    // Scores 0..total-1 were each added once, so the leaderboard is the highest TOP_N in order
+    private static void assertBestScores(HighScoreStore store, int total) {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < HighScoreStore.TOP_N; i++) expected.add(total - 1 - i);
+        assertEquals(expected, scores(store.top(HighScoreStore.TOP_N)));
+    }
+
+    private static List<Integer> scores(List<HighScoreStore.Entry> entries) {
+        List<Integer> scores = new ArrayList<>();
+        for (HighScoreStore.Entry e : entries) scores.add(e.score());
+        return scores;
+    }
+}